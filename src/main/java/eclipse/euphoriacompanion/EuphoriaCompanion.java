@@ -20,7 +20,8 @@ public class EuphoriaCompanion implements ModInitializer {
 
     /**
      * Process all shader packs in the game directory.
-     * Runs on a separate thread to avoid blocking the main Minecraft thread.
+     * Runs on a separate thread to avoid blocking the main Minecraft thread; only the block registry
+     * capture runs on the client thread, spread over a few ticks.
      * Has a 2-second cooldown to prevent accidental spam.
      */
     public static void processShaderPacks() {
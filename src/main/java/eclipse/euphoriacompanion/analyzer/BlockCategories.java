@@ -0,0 +1,153 @@
+package eclipse.euphoriacompanion.analyzer;
+
+import eclipse.euphoriacompanion.EuphoriaCompanion;
+import eclipse.euphoriacompanion.config.ModConfig;
+
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Category of every registered block as one mask per {@link BlockCategory}, indexed by raw ID. Computed once per
+ * run from the registry snapshot and the enabled categories, so finding the blocks a pack is missing is a few
+ * word-level operations ({@code categories & ~covered}) instead of a per-block lookup.
+ * Categorizing is split into raw ID ranges run with fork-join; workers only read the immutable snapshot and
+ * their masks are merged with OR, so the result does not depend on scheduling.
+ */
+public final class BlockCategories {
+    private static final BlockCategory[] CATEGORIES = BlockCategory.values();
+    private static final int BLOCKS_PER_TASK = 1024;
+
+    private final BitSet[] masks;  // Indexed by category ordinal, a block is in at most one mask
+
+    private BlockCategories(BitSet[] masks) {
+        this.masks = masks;
+    }
+
+    /**
+     * Categorizes all blocks of the snapshot using the scan mode and categories enabled in the config
+     */
+    public static BlockCategories compute(BlockRegistrySnapshot registry, ModConfig config) {
+        EuphoriaCompanion.LOGGER.info("Categorizing blocks using {} scan mode",
+            config.scanMode == ModConfig.ScanMode.DEEP ? "DEEP" : "QUICK");
+
+        return new BlockCategories(ForkJoinPool.commonPool().invoke(new CategorizeTask(registry, config, 0, registry.size())));
+    }
+
+    /**
+     * Categorizes the blocks of a raw ID range, splitting it in halves until it is small enough
+     */
+    private static final class CategorizeTask extends RecursiveTask<BitSet[]> {
+        private final BlockRegistrySnapshot registry;
+        private final ModConfig config;
+        private final int start;
+        private final int end;
+
+        CategorizeTask(BlockRegistrySnapshot registry, ModConfig config, int start, int end) {
+            this.registry = registry;
+            this.config = config;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected BitSet[] compute() {
+            if (end - start > BLOCKS_PER_TASK) {
+                int middle = (start + end) >>> 1;
+                CategorizeTask upper = new CategorizeTask(registry, config, middle, end);
+                upper.fork();
+                BitSet[] masks = new CategorizeTask(registry, config, start, middle).compute();
+
+                // Ranges are disjoint, so merging is a plain OR
+                BitSet[] upperMasks = upper.join();
+                for (int i = 0; i < masks.length; i++) {
+                    masks[i].or(upperMasks[i]);
+                }
+                return masks;
+            }
+
+            BitSet[] masks = new BitSet[CATEGORIES.length];
+            for (int i = 0; i < masks.length; i++) {
+                masks[i] = new BitSet(end);
+            }
+
+            boolean deep = config.scanMode == ModConfig.ScanMode.DEEP;
+            int blockEntityStopFlags = stopFlags(config, true);
+            int stopFlags = stopFlags(config, false);
+            for (int rawId = start; rawId < end; rawId++) {
+                // Quick scan only checks the default blockstate, deep scan checks ALL possible blockstates
+                // (catches cases like redstone lamps that only emit light when lit=true)
+                int flags = deep
+                    ? registry.anyStateFlags(rawId, registry.isBlockEntity(rawId) ? blockEntityStopFlags : stopFlags)
+                    : registry.defaultStateFlags(rawId);
+                BlockCategory category = categorize(config, flags, deep);
+                if (category != null) {
+                    masks[category.ordinal()].set(rawId);
+                }
+            }
+            return masks;
+        }
+    }
+
+    /**
+     * Flag that decides the highest priority enabled category a block can still be in, so a deep scan can stop at
+     * the first state having it. Block entities are a property of the block, so for blocks without one the
+     * category below Block Entity decides.
+     */
+    private static int stopFlags(ModConfig config, boolean blockEntity) {
+        if (config.checkBlockEntity && blockEntity) {
+            return BlockRegistrySnapshot.BLOCK_ENTITY;
+        } else if (config.checkLightEmitting) {
+            return BlockRegistrySnapshot.LIGHT_EMITTING;
+        } else if (config.checkTranslucent) {
+            return BlockRegistrySnapshot.TRANSLUCENT;
+        }
+        // Non-Full decides Non-Full, and also rules out Full
+        return BlockRegistrySnapshot.NON_FULL;
+    }
+
+    /**
+     * Picks the highest priority enabled category matching the flags of a block's states (OR over the states for
+     * a deep scan, so NON_FULL means at least one state is not a full cube)
+     */
+    private static BlockCategory categorize(ModConfig config, int flags, boolean deep) {
+        if (config.checkBlockEntity && (flags & BlockRegistrySnapshot.BLOCK_ENTITY) != 0) {
+            return BlockCategory.BLOCK_ENTITY;
+        } else if (config.checkLightEmitting && (flags & BlockRegistrySnapshot.LIGHT_EMITTING) != 0) {
+            return BlockCategory.LIGHT_EMITTING;
+        } else if (config.checkTranslucent && (flags & BlockRegistrySnapshot.TRANSLUCENT) != 0) {
+            return BlockCategory.TRANSLUCENT;
+        } else if (config.checkNonFull && (flags & BlockRegistrySnapshot.NON_FULL) != 0) {
+            return BlockCategory.NON_FULL;
+        } else if (config.checkFull && (!deep || (flags & BlockRegistrySnapshot.NON_FULL) == 0)) {
+            // Deep scan only reports blocks whose states are all full cubes as Full
+            return BlockCategory.FULL;
+        }
+
+        return null; // Skip if category is disabled
+    }
+
+    /**
+     * Category of a block, or null if it is in none of the enabled categories
+     */
+    public BlockCategory categoryOf(int rawId) {
+        for (BlockCategory category : CATEGORIES) {
+            if (masks[category.ordinal()].get(rawId)) {
+                return category;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Blocks in any category that are not covered
+     */
+    public BitSet missing(BitSet covered) {
+        BitSet missing = new BitSet();
+        for (BitSet mask : masks) {
+            missing.or(mask);
+        }
+        missing.andNot(covered);
+        return missing;
+    }
+}
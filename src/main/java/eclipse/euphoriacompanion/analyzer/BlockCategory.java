@@ -0,0 +1,26 @@
+package eclipse.euphoriacompanion.analyzer;
+
+/**
+ * Categories of blocks missing from block.properties, in priority order: a block that matches several
+ * categories is reported under the first one.
+ */
+public enum BlockCategory {
+    BLOCK_ENTITY("Block Entity"),  // Highest priority since it may require special shader handling
+    LIGHT_EMITTING("Light Emitting"),
+    TRANSLUCENT("Translucent"),
+    NON_FULL("Non-Full"),
+    FULL("Full");
+
+    private final String displayName;
+
+    BlockCategory(String displayName) {
+        this.displayName = displayName;
+    }
+
+    /**
+     * Name used in the report (e.g. "Light Emitting")
+     */
+    public String displayName() {
+        return displayName;
+    }
+}
@@ -0,0 +1,609 @@
+package eclipse.euphoriacompanion.analyzer;
+
+import eclipse.euphoriacompanion.EuphoriaCompanion;
+import eclipse.euphoriacompanion.parser.SymbolTable;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import net.fabricmc.loader.api.FabricLoader;
+import net.fabricmc.loader.api.ModContainer;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockEntityProvider;
+import net.minecraft.block.BlockState;
+import net.minecraft.client.render.RenderLayer;
+import net.minecraft.client.render.RenderLayers;
+import net.minecraft.registry.Registries;
+import net.minecraft.registry.entry.RegistryEntry;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.EmptyBlockView;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Immutable copy of everything the analysis needs from the block registry: IDs, namespaces, raw IDs,
+ * per-state feature flags, render layers and tag members. Captured once per analysis run and shared by all
+ * shaderpacks, so N packs cost one registry walk plus N passes over plain arrays. Tags are indexed as raw ID
+ * bitsets.
+ * Blocks are indexed by raw ID. Feature flags are a table indexed by global state ID ({@link Block#STATE_IDS});
+ * the state IDs of each block are a contiguous range of another array.
+ * The block and state data can be persisted and restored in a later game session with the same mods. Tags (which
+ * come from the world's datapacks) and render layers (which depend on the graphics mode) are never persisted and are
+ * captured again on every run, together with copies of the item and entity type registries.
+ */
+public final class BlockRegistrySnapshot {
+    // Per-state feature flags
+    public static final byte LIGHT_EMITTING = 1;  // Luminance > 0
+    public static final byte TRANSLUCENT = 2;     // Uses the translucent render layer
+    public static final byte OPAQUE_FULL = 4;     // Opaque full cube (no light leaks through any side)
+    public static final byte NON_FULL = 8;        // Not an opaque full cube
+    public static final byte BLOCK_ENTITY = 16;   // Block has a block entity
+
+    // Render layers as used in block.properties (layer.XX), index 0 = a layer shaders don't distinguish
+    private static final String[] LAYER_NAMES = {null, "solid", "cutout", "cutout_mipped", "translucent"};
+
+    private static final int MAGIC = 0x45435253;  // "ECRS"
+    private static final int FORMAT_VERSION = 3;
+
+    private final String[] ids;
+    private final String[] namespaces;      // Distinct namespaces in sorted order
+    private final int[] namespaceIndices;   // Index into namespaces of each block
+    private final int[] rawIdsById;         // Raw IDs in block ID order, for sorted report output
+    private final int[] rawIdsByNamespace;  // Raw IDs grouped by namespace index, in raw ID order within a namespace
+    private final int[] namespaceStarts;    // Blocks of namespace n are rawIdsByNamespace[namespaceStarts[n]..namespaceStarts[n + 1])
+    private final BitSet blockEntities;
+    private final byte[] renderLayers;      // Index into LAYER_NAMES of each block's default state
+    private final int[] stateOffsets;       // State IDs of block i are blockStates[stateOffsets[i]..stateOffsets[i + 1])
+    private final int[] blockStates;        // Global state IDs grouped by block
+    private final int[] defaultStates;      // Global state ID of each block's default state, -1 if it has none
+    private final byte[] stateFlags;        // Feature flags indexed by global state ID
+    private final Map<String, BitSet> tags;  // Tag ID (e.g. "minecraft:logs") -> raw IDs of its blocks
+    private final Int2IntOpenHashMap rawIdsBySymbol;
+    private final RegistryEntrySnapshot items;
+    private final RegistryEntrySnapshot entityTypes;
+
+    private BlockRegistrySnapshot(String[] ids, BitSet blockEntities, byte[] renderLayers, int[] stateOffsets,
+                                  int[] blockStates, int[] defaultStates, byte[] stateFlags, Map<String, int[]> tags,
+                                  RegistryEntrySnapshot items, RegistryEntrySnapshot entityTypes, SymbolTable symbolTable) {
+        this.ids = ids;
+        this.items = items;
+        this.entityTypes = entityTypes;
+        this.blockEntities = blockEntities;
+        this.renderLayers = renderLayers;
+        this.stateOffsets = stateOffsets;
+        this.blockStates = blockStates;
+        this.defaultStates = defaultStates;
+        this.stateFlags = stateFlags;
+        this.tags = new HashMap<>(tags.size() * 2);
+        for (Map.Entry<String, int[]> tag : tags.entrySet()) {
+            BitSet members = new BitSet(ids.length);
+            for (int rawId : tag.getValue()) {
+                members.set(rawId);
+            }
+            this.tags.put(tag.getKey(), members);
+        }
+
+        this.rawIdsBySymbol = new Int2IntOpenHashMap(ids.length);
+        rawIdsBySymbol.defaultReturnValue(-1);
+        for (int rawId = 0; rawId < ids.length; rawId++) {
+            rawIdsBySymbol.put(symbolTable.intern(ids[rawId]), rawId);
+        }
+
+        // Namespaces as indices into a sorted table, so grouping by mod needs no string comparisons
+        String[] blockNamespaces = new String[ids.length];
+        for (int rawId = 0; rawId < ids.length; rawId++) {
+            blockNamespaces[rawId] = ids[rawId].substring(0, ids[rawId].indexOf(':'));
+        }
+        this.namespaces = new TreeSet<>(Arrays.asList(blockNamespaces)).toArray(new String[0]);
+        this.namespaceIndices = new int[ids.length];
+        for (int rawId = 0; rawId < ids.length; rawId++) {
+            namespaceIndices[rawId] = Arrays.binarySearch(namespaces, blockNamespaces[rawId]);
+        }
+
+        this.namespaceStarts = new int[namespaces.length + 1];
+        for (int rawId = 0; rawId < ids.length; rawId++) {
+            namespaceStarts[namespaceIndices[rawId] + 1]++;
+        }
+        for (int namespace = 0; namespace < namespaces.length; namespace++) {
+            namespaceStarts[namespace + 1] += namespaceStarts[namespace];
+        }
+        this.rawIdsByNamespace = new int[ids.length];
+        int[] positions = Arrays.copyOf(namespaceStarts, namespaces.length);
+        for (int rawId = 0; rawId < ids.length; rawId++) {
+            rawIdsByNamespace[positions[namespaceIndices[rawId]]++] = rawId;
+        }
+
+        this.rawIdsById = new int[ids.length];
+        for (int rawId = 0; rawId < ids.length; rawId++) {
+            rawIdsById[rawId] = rawId;
+        }
+        IntArrays.quickSort(rawIdsById, (a, b) -> ids[a].compareTo(ids[b]));
+    }
+
+    /**
+     * Restores the block data persisted for the current mod set and captures only tags and render layers, or
+     * captures and persists everything
+     */
+    public static BlockRegistrySnapshot loadOrCapture(Path file, SymbolTable symbolTable) {
+        String fingerprint = fingerprint();
+
+        Capture restored = load(file, fingerprint);
+        if (restored != null) {
+            return ClientThreadCapture.capture(restored, symbolTable);
+        }
+
+        BlockRegistrySnapshot snapshot = ClientThreadCapture.capture(new Capture(), symbolTable);
+        snapshot.save(file, fingerprint);
+        return snapshot;
+    }
+
+    /**
+     * Walks the block registry once, interning block IDs into the given symbol table
+     */
+    public static BlockRegistrySnapshot capture(SymbolTable symbolTable) {
+        return capture(new Capture(), symbolTable);
+    }
+
+    /**
+     * Runs a capture to the end in one go
+     */
+    static BlockRegistrySnapshot capture(Capture capture, SymbolTable symbolTable) {
+        capture.step(Long.MAX_VALUE);
+        return capture.build(symbolTable);
+    }
+
+    /**
+     * A registry walk that can be spread over several client ticks. {@link #step(long)} copies registry data and
+     * must run on the client thread; {@link #build(SymbolTable)} only reads the copy and can run on any thread.
+     * Blocks and their states are walked first, unless restored from a persisted snapshot, then render layers, tags
+     * and the item and entity type registries. Registry sizes are read by the first step, so nothing is read from
+     * the registries off the client thread.
+     */
+    static final class Capture {
+        private static final int BLOCKS_PER_BUDGET_CHECK = 64;
+
+        // Block and state data, which only depends on the installed mods
+        private int blockCount;
+        private String[] ids;
+        private BitSet blockEntities;
+        private int[] stateOffsets;
+        private int[] defaultStates;
+        private int[] blockStates;
+        private byte[] stateFlags;
+        private int stateCount;
+        private int nextUnlistedStateId;  // For states missing from STATE_IDS
+        private boolean blocksCaptured;
+
+        // Data captured on every run
+        private byte[] renderLayers;
+        private Map<String, int[]> tags;
+        private RegistryEntrySnapshot items;
+        private RegistryEntrySnapshot entityTypes;
+        private int nextRawId;
+
+        Capture() {
+        }
+
+        /**
+         * Continues from block and state data restored from a persisted snapshot
+         */
+        Capture(String[] ids, BitSet blockEntities, int[] stateOffsets, int[] blockStates, int[] defaultStates,
+                byte[] stateFlags) {
+            this.blockCount = ids.length;
+            this.ids = ids;
+            this.blockEntities = blockEntities;
+            this.stateOffsets = stateOffsets;
+            this.blockStates = blockStates;
+            this.defaultStates = defaultStates;
+            this.stateFlags = stateFlags;
+            this.stateCount = blockStates.length;
+            this.blocksCaptured = true;
+        }
+
+        /**
+         * Captures until the time budget is used up. Returns true once everything is captured.
+         */
+        boolean step(long budgetNanos) {
+            long start = System.nanoTime();
+            if (!blocksCaptured) {
+                if (ids == null) {
+                    startBlocks();
+                }
+                while (nextRawId < blockCount) {
+                    captureBlock(nextRawId++);
+                    if (nextRawId % BLOCKS_PER_BUDGET_CHECK == 0 && System.nanoTime() - start > budgetNanos) {
+                        return false;
+                    }
+                }
+                finishBlocks();
+            }
+
+            if (renderLayers == null) {
+                renderLayers = new byte[blockCount];
+                nextRawId = 0;
+            }
+            while (nextRawId < blockCount) {
+                captureDefaultRenderLayer(nextRawId++);
+                if (nextRawId % BLOCKS_PER_BUDGET_CHECK == 0 && System.nanoTime() - start > budgetNanos) {
+                    return false;
+                }
+            }
+
+            if (tags == null) {
+                tags = captureTags();
+                items = RegistryEntrySnapshot.capture(Registries.ITEM, RegistryEntrySnapshot::itemCategory);
+                entityTypes = RegistryEntrySnapshot.capture(Registries.ENTITY_TYPE, RegistryEntrySnapshot::entityCategory);
+            }
+            return true;
+        }
+
+        private void startBlocks() {
+            blockCount = Registries.BLOCK.size();
+            ids = new String[blockCount];
+            blockEntities = new BitSet(blockCount);
+            stateOffsets = new int[blockCount + 1];
+            defaultStates = new int[blockCount];
+            blockStates = new int[blockCount * 4];
+            stateFlags = new byte[Block.STATE_IDS.size()];
+            nextUnlistedStateId = Block.STATE_IDS.size();
+        }
+
+        private void finishBlocks() {
+            stateOffsets[blockCount] = stateCount;
+            blockStates = Arrays.copyOf(blockStates, stateCount);
+            stateFlags = Arrays.copyOf(stateFlags, nextUnlistedStateId);
+            blocksCaptured = true;
+        }
+
+        private void captureBlock(int rawId) {
+            Block block = Registries.BLOCK.get(rawId);
+            ids[rawId] = Registries.BLOCK.getId(block).toString();
+            boolean blockEntity = block instanceof BlockEntityProvider;
+            if (blockEntity) {
+                blockEntities.set(rawId);
+            }
+
+            BlockState defaultState = block.getDefaultState();
+            defaultStates[rawId] = -1;
+            if (defaultState == null) {
+                EuphoriaCompanion.LOGGER.warn("Block has no default state: {}", ids[rawId]);
+            }
+
+            stateOffsets[rawId] = stateCount;
+            for (BlockState state : block.getStateManager().getStates()) {
+                int stateId = stateId(state);
+                if (stateCount == blockStates.length) {
+                    blockStates = Arrays.copyOf(blockStates, stateCount * 2);
+                }
+                if (state == defaultState) {
+                    defaultStates[rawId] = stateId;
+                }
+                blockStates[stateCount++] = stateId;
+                stateFlags[stateId] = captureFlags(state, blockEntity);
+            }
+        }
+
+        /**
+         * Global state ID, or an ID past the end of STATE_IDS for a state it does not list
+         */
+        private int stateId(BlockState state) {
+            int stateId = Block.STATE_IDS.getRawId(state);
+            if (stateId < 0) {
+                stateId = nextUnlistedStateId++;
+            }
+            if (stateId >= stateFlags.length) {
+                stateFlags = Arrays.copyOf(stateFlags, Math.max(stateId + 1, stateFlags.length * 2));
+            }
+            return stateId;
+        }
+
+        private void captureDefaultRenderLayer(int rawId) {
+            BlockState defaultState = Registries.BLOCK.get(rawId).getDefaultState();
+            if (defaultState != null) {
+                renderLayers[rawId] = captureRenderLayer(defaultState, ids[rawId]);
+            }
+        }
+
+        private static Map<String, int[]> captureTags() {
+            Map<String, int[]> tags = new HashMap<>();
+            Registries.BLOCK.streamTagsAndEntries().forEach(tag -> {
+                int[] members = new int[tag.getSecond().size()];
+                int count = 0;
+                for (RegistryEntry<Block> entry : tag.getSecond()) {
+                    members[count++] = Registries.BLOCK.getRawId(entry.value());
+                }
+                tags.put(tag.getFirst().id().toString(), Arrays.copyOf(members, count));
+            });
+            return tags;
+        }
+
+        /**
+         * Builds the snapshot from the captured data, interning block IDs into the given symbol table
+         */
+        BlockRegistrySnapshot build(SymbolTable symbolTable) {
+            return new BlockRegistrySnapshot(ids, blockEntities, renderLayers, stateOffsets, blockStates, defaultStates,
+                stateFlags, tags, items, entityTypes, symbolTable);
+        }
+    }
+
+    private static byte captureFlags(BlockState state, boolean blockEntity) {
+        byte flags = blockEntity ? BLOCK_ENTITY : 0;
+        if (state.getLuminance() > 0) {
+            flags |= LIGHT_EMITTING;
+        }
+        try {
+            // Use Minecraft's actual render layer determination
+            if (RenderLayers.getBlockLayer(state) == RenderLayer.getTranslucent()) {
+                flags |= TRANSLUCENT;
+            }
+        } catch (Exception ignored) {
+        }
+
+        // Shape of the state on its own, without neighbors; an unknown shape is not reported as leaking light
+        boolean opaqueFull;
+        try {
+            opaqueFull = state.isOpaqueFullCube(EmptyBlockView.INSTANCE, BlockPos.ORIGIN);
+        } catch (Exception e) {
+            opaqueFull = true;
+        }
+        flags |= opaqueFull ? OPAQUE_FULL : NON_FULL;
+        return flags;
+    }
+
+    private static byte captureRenderLayer(BlockState state, String blockId) {
+        try {
+            // Map Minecraft's render layers to shader layer names
+            RenderLayer renderLayer = RenderLayers.getBlockLayer(state);
+            if (renderLayer == RenderLayer.getSolid()) {
+                return 1;
+            } else if (renderLayer == RenderLayer.getCutout()) {
+                return 2;
+            } else if (renderLayer == RenderLayer.getCutoutMipped()) {
+                return 3;
+            } else if (renderLayer == RenderLayer.getTranslucent()) {
+                return 4;
+            }
+        } catch (Exception e) {
+            EuphoriaCompanion.LOGGER.error("Failed to get render layer for: {}", blockId, e);
+        }
+        return 0;
+    }
+
+    /**
+     * Identifies the block registry contents: the IDs and versions of all loaded mods (Minecraft included)
+     */
+    static String fingerprint() {
+        List<String> mods = new ArrayList<>();
+        for (ModContainer mod : FabricLoader.getInstance().getAllMods()) {
+            mods.add(mod.getMetadata().getId() + "@" + mod.getMetadata().getVersion().getFriendlyString());
+        }
+        Collections.sort(mods);
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(String.join("\n", mods).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Restores the block and state data written by {@link #save(Path, String)} as a capture that still needs its
+     * render layers and tags. Returns null if the file is missing, was written for another mod set, or is outdated
+     * or corrupt.
+     */
+    static Capture load(Path file, String fingerprint) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                EuphoriaCompanion.LOGGER.info("Ignoring registry snapshot with unknown format: {}", file);
+                return null;
+            }
+            if (!in.readUTF().equals(fingerprint)) {
+                EuphoriaCompanion.LOGGER.info("Mods changed since the registry snapshot was written, capturing a new one");
+                return null;
+            }
+
+            int blockCount = in.readInt();
+            String[] ids = new String[blockCount];
+            BitSet blockEntities = new BitSet(blockCount);
+            int[] stateOffsets = new int[blockCount + 1];
+            int[] blockStates = new int[in.readInt()];
+            int[] defaultStates = new int[blockCount];
+            for (int rawId = 0; rawId < blockCount; rawId++) {
+                ids[rawId] = in.readUTF();
+                blockEntities.set(rawId, in.readBoolean());
+                stateOffsets[rawId + 1] = stateOffsets[rawId] + in.readInt();
+                for (int i = stateOffsets[rawId]; i < stateOffsets[rawId + 1]; i++) {
+                    blockStates[i] = in.readInt();
+                }
+                defaultStates[rawId] = in.readInt();
+            }
+
+            byte[] stateFlags = new byte[in.readInt()];
+            in.readFully(stateFlags);
+            for (int stateId : blockStates) {
+                if (stateId < 0 || stateId >= stateFlags.length) {
+                    throw new IOException("Invalid state ID in registry snapshot: " + stateId);
+                }
+            }
+
+            EuphoriaCompanion.LOGGER.info("Loaded registry snapshot of {} blocks from {}", blockCount, file);
+            return new Capture(ids, blockEntities, stateOffsets, blockStates, defaultStates, stateFlags);
+        } catch (IOException | RuntimeException e) {
+            EuphoriaCompanion.LOGGER.warn("Failed to load registry snapshot from {}, ignoring it", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the block and state data to a file, tagged with the fingerprint of the mod set it was captured with
+     */
+    void save(Path file, String fingerprint) {
+        try {
+            Files.createDirectories(file.getParent());
+            Path tempPath = file.resolveSibling(file.getFileName() + ".tmp");
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(fingerprint);
+
+                out.writeInt(ids.length);
+                out.writeInt(blockStates.length);
+                for (int rawId = 0; rawId < ids.length; rawId++) {
+                    out.writeUTF(ids[rawId]);
+                    out.writeBoolean(blockEntities.get(rawId));
+                    out.writeInt(stateOffsets[rawId + 1] - stateOffsets[rawId]);
+                    for (int i = stateOffsets[rawId]; i < stateOffsets[rawId + 1]; i++) {
+                        out.writeInt(blockStates[i]);
+                    }
+                    out.writeInt(defaultStates[rawId]);
+                }
+                out.writeInt(stateFlags.length);
+                out.write(stateFlags);
+            }
+
+            // Atomic rename - a crash mid-write never leaves a truncated snapshot behind
+            Files.move(tempPath, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            EuphoriaCompanion.LOGGER.warn("Failed to save registry snapshot to {}", file, e);
+        }
+    }
+
+    /**
+     * Number of blocks in the registry
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    public String id(int rawId) {
+        return ids[rawId];
+    }
+
+    /**
+     * Raw ID of the block with the given ID symbol, or -1 if no such block is registered
+     */
+    public int rawId(int symbol) {
+        return rawIdsBySymbol.get(symbol);
+    }
+
+    public String namespace(int rawId) {
+        return namespaces[namespaceIndices[rawId]];
+    }
+
+    /**
+     * Index of the block's namespace in sorted namespace order
+     */
+    public int namespaceIndex(int rawId) {
+        return namespaceIndices[rawId];
+    }
+
+    public int namespaceCount() {
+        return namespaces.length;
+    }
+
+    public String namespaceName(int namespaceIndex) {
+        return namespaces[namespaceIndex];
+    }
+
+    /**
+     * Range of positions of a namespace's blocks for {@link #rawIdInNamespaceOrder(int)}
+     */
+    public int namespaceStart(int namespaceIndex) {
+        return namespaceStarts[namespaceIndex];
+    }
+
+    public int namespaceEnd(int namespaceIndex) {
+        return namespaceStarts[namespaceIndex + 1];
+    }
+
+    /**
+     * Raw ID of the block at the given position in namespace order (raw ID order within a namespace)
+     */
+    public int rawIdInNamespaceOrder(int position) {
+        return rawIdsByNamespace[position];
+    }
+
+    /**
+     * Raw ID of the block at the given position in block ID order
+     */
+    public int rawIdInIdOrder(int position) {
+        return rawIdsById[position];
+    }
+
+    public boolean isBlockEntity(int rawId) {
+        return blockEntities.get(rawId);
+    }
+
+    /**
+     * Shader layer name (solid, cutout, cutout_mipped, translucent) of the block's default state, or null
+     */
+    public String renderLayer(int rawId) {
+        return LAYER_NAMES[renderLayers[rawId]];
+    }
+
+    /**
+     * Flags of the block's default state (a block without one counts as opaque full)
+     */
+    public byte defaultStateFlags(int rawId) {
+        int state = defaultStates[rawId];
+        if (state < 0) {
+            return (byte) (OPAQUE_FULL | (blockEntities.get(rawId) ? BLOCK_ENTITY : 0));
+        }
+        return stateFlags[state];
+    }
+
+    /**
+     * OR of the flags of all states of a block. Stops as soon as one of the stop flags is set, since the
+     * remaining states cannot change the outcome for the caller.
+     */
+    public int anyStateFlags(int rawId, int stopFlags) {
+        int flags = 0;
+        for (int i = stateOffsets[rawId]; i < stateOffsets[rawId + 1]; i++) {
+            flags |= stateFlags[blockStates[i]];
+            if ((flags & stopFlags) != 0) {
+                break;
+            }
+        }
+        return flags;
+    }
+
+    /**
+     * Total number of block states
+     */
+    public int stateCount() {
+        return blockStates.length;
+    }
+
+    /**
+     * Raw IDs of the blocks in a tag (e.g. "minecraft:logs"), or null if no such tag exists.
+     * The bitset is shared and must not be modified.
+     */
+    public BitSet tagMembers(String tagId) {
+        return tags.get(tagId);
+    }
+
+    /**
+     * Copy of the item registry
+     */
+    public RegistryEntrySnapshot items() {
+        return items;
+    }
+
+    /**
+     * Copy of the entity type registry
+     */
+    public RegistryEntrySnapshot entityTypes() {
+        return entityTypes;
+    }
+}
@@ -1,6 +1,8 @@
 package eclipse.euphoriacompanion.analyzer;
 
 import eclipse.euphoriacompanion.EuphoriaCompanion;
+import eclipse.euphoriacompanion.parser.BlockEntry;
+import eclipse.euphoriacompanion.parser.SymbolTable;
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
 import net.minecraft.registry.Registries;
@@ -14,84 +16,28 @@ import java.util.*;
  */
 public class BlockStateValidator {
 
-    /**
-     * Represents a parsed blockstate specification
-     *
-     * @param blockId    Normalized: "namespace:blockname"
-     * @param properties property -> value
-     */
-        public record BlockStateSpec(String blockId, Map<String, String> properties) {
-    }
-
-    /**
-     * Parses a blockstate string
-     * Format: "modName:blockName:prop1=val1:prop2=val2..." or "blockName:prop1=val1:prop2=val2..." (vanilla)
-     */
-    public static BlockStateSpec parseBlockState(String fullBlockId) {
-        String[] segments = fullBlockId.split(":");
-
-        if (segments.length < 2) {
-            return null; // Just a block ID, no blockstates
-        }
-
-        String namespace;
-        String blockName;
-        int propertyStartIndex;
-
-        // Check if second segment contains '=' to determine if first segment is namespace or blockname
-        if (segments[1].contains("=")) {
-            // Format: "blockName:prop1=val1..."
-            namespace = "minecraft";
-            blockName = segments[0];
-            propertyStartIndex = 1;
-        } else {
-            // Format: "namespace:blockName:prop1=val1..."
-            namespace = segments[0];
-            blockName = segments[1];
-            propertyStartIndex = 2;
-        }
-
-        // Parse properties
-        Map<String, String> properties = new LinkedHashMap<>();
-        for (int i = propertyStartIndex; i < segments.length; i++) {
-            String propertyDef = segments[i];
-            String[] propParts = propertyDef.split("=", 2);
-            if (propParts.length == 2) {
-                properties.put(propParts[0], propParts[1]);
-            }
-        }
-
-        if (properties.isEmpty()) {
-            return null; // No blockstate properties defined
-        }
-
-        String blockId = namespace + ":" + blockName;
-        return new BlockStateSpec(blockId, properties);
-    }
-
     /**
      * Validates blockstate completeness and returns missing property values
      * Returns: Map<blockId, Map<propertyName, List<missingValues>>>
      */
-    public static Map<String, Map<String, List<String>>> validateBlockStates(Map<String, Integer> blockToProperty) {
-        // Group specs by block ID and track which property values are defined
+    public static Map<String, Map<String, List<String>>> validateBlockStates(List<BlockEntry> blockEntries, SymbolTable.Snapshot symbols) {
+        // Group entries by block ID and track which property values are defined
         Map<String, Map<String, Set<String>>> definedValuesByBlock = new HashMap<>();
 
-        for (String fullId : blockToProperty.keySet()) {
-            BlockStateSpec spec = parseBlockState(fullId);
-            if (spec == null) {
+        for (BlockEntry entry : blockEntries) {
+            if (!entry.hasBlockState()) {
                 continue; // No blockstates defined
             }
 
-            String blockId = spec.blockId();
+            String blockId = symbols.name(entry.baseSymbol());
             Map<String, Set<String>> propertyValues = definedValuesByBlock.computeIfAbsent(
                 blockId, k -> new HashMap<>()
             );
 
             // Track which values are defined for each property
-            for (Map.Entry<String, String> prop : spec.properties().entrySet()) {
-                propertyValues.computeIfAbsent(prop.getKey(), k -> new HashSet<>())
-                    .add(prop.getValue());
+            for (int i = 0; i < entry.propertyCount(); i++) {
+                propertyValues.computeIfAbsent(entry.propertyName(i), k -> new HashSet<>())
+                    .add(entry.propertyValue(i));
             }
         }
 
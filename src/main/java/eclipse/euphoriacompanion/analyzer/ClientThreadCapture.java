@@ -0,0 +1,111 @@
+package eclipse.euphoriacompanion.analyzer;
+
+import eclipse.euphoriacompanion.EuphoriaCompanion;
+import eclipse.euphoriacompanion.parser.SymbolTable;
+import net.minecraft.client.MinecraftClient;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Captures the block registry on the client thread, where render layers, shapes and tags cannot change under
+ * the capture (resource reloads run there too). The walk is spread over client ticks with a small time budget
+ * per tick so no frame spikes; the analysis thread waits for the finished copy and never touches client state.
+ * The wait gives up once the client stops ticking (shutdown, a world unloading, a tick failing before the hook).
+ */
+public final class ClientThreadCapture {
+    private static final long TICK_BUDGET_NANOS = 2_000_000;  // 2 ms of each client tick
+    private static final long STALL_TIMEOUT_NANOS = 30_000_000_000L;  // Give up after 30 s without a client tick
+
+    private static volatile PendingCapture pending;
+    private static volatile long lastTickNanos;
+
+    private ClientThreadCapture() {
+    }
+
+    /**
+     * Captures the registry through client ticks and waits for the result. Captures directly if called on the
+     * client thread or without a client.
+     */
+    static BlockRegistrySnapshot capture(SymbolTable symbolTable) {
+        return capture(new BlockRegistrySnapshot.Capture(), symbolTable);
+    }
+
+    /**
+     * Runs the remaining steps of a capture (e.g. one restored from a persisted snapshot) through client ticks
+     */
+    static BlockRegistrySnapshot capture(BlockRegistrySnapshot.Capture capture, SymbolTable symbolTable) {
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (client == null || client.isOnThread()) {
+            return BlockRegistrySnapshot.capture(capture, symbolTable);
+        }
+
+        PendingCapture request = new PendingCapture(capture, new CompletableFuture<>());
+        lastTickNanos = System.nanoTime();
+        pending = request;
+        try {
+            await(request);
+        } finally {
+            // A capture that failed or was given up on must not be stepped by later ticks
+            clearPending(request);
+        }
+
+        // Interning and indexing only read the copy, so they stay off the client thread
+        return capture.build(symbolTable);
+    }
+
+    /**
+     * Waits for a capture to finish, failing if it fails or the client has not ticked for too long
+     */
+    private static void await(PendingCapture request) {
+        while (true) {
+            try {
+                request.result().get(1, TimeUnit.SECONDS);
+                return;
+            } catch (TimeoutException e) {
+                if (System.nanoTime() - lastTickNanos > STALL_TIMEOUT_NANOS) {
+                    throw new IllegalStateException("Client stopped ticking while capturing the block registry");
+                }
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Failed to capture block registry", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the block registry capture", e);
+            }
+        }
+    }
+
+    /**
+     * Advances a pending capture by one time slice; called at the end of every client tick
+     */
+    public static void tick() {
+        PendingCapture request = pending;
+        if (request == null) {
+            return;
+        }
+
+        lastTickNanos = System.nanoTime();
+        try {
+            if (request.capture().step(TICK_BUDGET_NANOS)) {
+                clearPending(request);
+                request.result().complete(request.capture());
+            }
+        } catch (Exception e) {
+            clearPending(request);
+            EuphoriaCompanion.LOGGER.error("Failed to capture block registry", e);
+            request.result().completeExceptionally(e);
+        }
+    }
+
+    private static synchronized void clearPending(PendingCapture request) {
+        if (pending == request) {
+            pending = null;
+        }
+    }
+
+    private record PendingCapture(BlockRegistrySnapshot.Capture capture,
+                                  CompletableFuture<BlockRegistrySnapshot.Capture> result) {
+    }
+}
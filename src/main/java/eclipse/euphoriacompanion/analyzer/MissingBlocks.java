@@ -0,0 +1,249 @@
+package eclipse.euphoriacompanion.analyzer;
+
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntIterators;
+
+import java.util.*;
+
+/**
+ * Missing blocks of a pack in columnar form: one int array of raw IDs, grouped by namespace and category in report
+ * order (namespaces and category names sorted, block IDs sorted within a group). Block IDs are resolved through the
+ * registry snapshot only when the report is written, so a report holds no strings of its own.
+ * A streamed instance keeps only the missing mask and the size of each group; its blocks are categorized again
+ * while the report is written, in raw ID order within a group, so memory does not grow with the number of
+ * missing blocks.
+ */
+public final class MissingBlocks {
+    private static final BlockCategory[] CATEGORIES_BY_NAME = sortedByName();
+
+    private final BlockRegistrySnapshot registry;
+    private final int[] rawIds;                // null if streamed
+    private final BlockCategories categories;  // Only set if streamed
+    private final BitSet missing;              // Only set if streamed
+    private final int[] groupStarts;       // Blocks of group g are rawIds[groupStarts[g]..groupStarts[g + 1]) (counts only if streamed)
+    private final int[] groupNamespaces;   // Namespace index of each group
+    private final byte[] groupCategories;  // Category ordinal of each group
+
+    private MissingBlocks(BlockRegistrySnapshot registry, int[] rawIds, BlockCategories categories, BitSet missing,
+                          int[] groupStarts, int[] groupNamespaces, byte[] groupCategories) {
+        this.registry = registry;
+        this.rawIds = rawIds;
+        this.categories = categories;
+        this.missing = missing;
+        this.groupStarts = groupStarts;
+        this.groupNamespaces = groupNamespaces;
+        this.groupCategories = groupCategories;
+    }
+
+    /**
+     * Collects the blocks of all categories that are not covered, with a counting sort by (namespace, category)
+     * over the raw IDs in block ID order
+     */
+    public static MissingBlocks collect(BlockRegistrySnapshot registry, BlockCategories categories, BitSet covered) {
+        BitSet missing = categories.missing(covered);
+        int[] bucketStarts = countBuckets(registry, categories, missing);
+        int[] categoryRanks = categoryRanks();
+
+        // Placing blocks in ID order keeps every group sorted
+        int[] rawIds = new int[missing.cardinality()];
+        int[] positions = Arrays.copyOf(bucketStarts, bucketStarts.length - 1);
+        for (int i = 0; i < registry.size(); i++) {
+            int rawId = registry.rawIdInIdOrder(i);
+            if (missing.get(rawId)) {
+                rawIds[positions[bucket(registry, categories, categoryRanks, rawId)]++] = rawId;
+            }
+        }
+
+        return groups(registry, rawIds, null, null, bucketStarts);
+    }
+
+    /**
+     * Counts the blocks of all categories that are not covered per (namespace, category) without storing them;
+     * the report writer walks the missing mask again in raw ID order
+     */
+    public static MissingBlocks stream(BlockRegistrySnapshot registry, BlockCategories categories, BitSet covered) {
+        BitSet missing = categories.missing(covered);
+        return groups(registry, null, categories, missing, countBuckets(registry, categories, missing));
+    }
+
+    /**
+     * Start of each (namespace, category) bucket, with the total at the end
+     */
+    private static int[] countBuckets(BlockRegistrySnapshot registry, BlockCategories categories, BitSet missing) {
+        int[] categoryRanks = categoryRanks();
+        int[] bucketStarts = new int[registry.namespaceCount() * categoryRanks.length + 1];
+        for (int rawId = missing.nextSetBit(0); rawId >= 0; rawId = missing.nextSetBit(rawId + 1)) {
+            bucketStarts[bucket(registry, categories, categoryRanks, rawId) + 1]++;
+        }
+        for (int bucket = 0; bucket < bucketStarts.length - 1; bucket++) {
+            bucketStarts[bucket + 1] += bucketStarts[bucket];
+        }
+        return bucketStarts;
+    }
+
+    /**
+     * Keeps the non-empty buckets as groups
+     */
+    private static MissingBlocks groups(BlockRegistrySnapshot registry, int[] rawIds, BlockCategories categories,
+                                        BitSet missing, int[] bucketStarts) {
+        int categoryCount = CATEGORIES_BY_NAME.length;
+        int groupCount = 0;
+        for (int bucket = 0; bucket < bucketStarts.length - 1; bucket++) {
+            if (bucketStarts[bucket + 1] > bucketStarts[bucket]) {
+                groupCount++;
+            }
+        }
+
+        int[] groupStarts = new int[groupCount + 1];
+        int[] groupNamespaces = new int[groupCount];
+        byte[] groupCategories = new byte[groupCount];
+        int group = 0;
+        for (int bucket = 0; bucket < bucketStarts.length - 1; bucket++) {
+            if (bucketStarts[bucket + 1] > bucketStarts[bucket]) {
+                groupStarts[group] = bucketStarts[bucket];
+                groupNamespaces[group] = bucket / categoryCount;
+                groupCategories[group] = (byte) CATEGORIES_BY_NAME[bucket % categoryCount].ordinal();
+                group++;
+            }
+        }
+        groupStarts[groupCount] = bucketStarts[bucketStarts.length - 1];
+
+        return new MissingBlocks(registry, rawIds, categories, missing, groupStarts, groupNamespaces, groupCategories);
+    }
+
+    private static int bucket(BlockRegistrySnapshot registry, BlockCategories categories, int[] categoryRanks, int rawId) {
+        return registry.namespaceIndex(rawId) * categoryRanks.length + categoryRanks[categories.categoryOf(rawId).ordinal()];
+    }
+
+    private static int[] categoryRanks() {
+        int[] categoryRanks = new int[CATEGORIES_BY_NAME.length];
+        for (int rank = 0; rank < CATEGORIES_BY_NAME.length; rank++) {
+            categoryRanks[CATEGORIES_BY_NAME[rank].ordinal()] = rank;
+        }
+        return categoryRanks;
+    }
+
+    private static BlockCategory[] sortedByName() {
+        BlockCategory[] categories = BlockCategory.values();
+        Arrays.sort(categories, Comparator.comparing(BlockCategory::displayName));
+        return categories;
+    }
+
+    /**
+     * Total number of missing blocks
+     */
+    public int size() {
+        return groupStarts[groupStarts.length - 1];
+    }
+
+    /**
+     * Whether blocks are listed in raw ID order and categorized while written instead of stored sorted by ID
+     */
+    public boolean isStreamed() {
+        return rawIds == null;
+    }
+
+    /**
+     * Number of (namespace, category) groups, in report order
+     */
+    public int groupCount() {
+        return groupNamespaces.length;
+    }
+
+    public String groupNamespace(int group) {
+        return registry.namespaceName(groupNamespaces[group]);
+    }
+
+    public BlockCategory groupCategory(int group) {
+        return BlockCategory.values()[groupCategories[group]];
+    }
+
+    public int groupSize(int group) {
+        return groupStarts[group + 1] - groupStarts[group];
+    }
+
+    /**
+     * Number of missing blocks in the namespace of a group (the group and its neighbors in the same namespace)
+     */
+    public int namespaceSize(int group) {
+        int first = group;
+        while (first > 0 && groupNamespaces[first - 1] == groupNamespaces[group]) {
+            first--;
+        }
+        int end = group + 1;
+        while (end < groupCount() && groupNamespaces[end] == groupNamespaces[group]) {
+            end++;
+        }
+        return groupStarts[end] - groupStarts[first];
+    }
+
+    /**
+     * Raw IDs of the blocks of a group: sorted by block ID, or in raw ID order if streamed
+     */
+    public IntIterator rawIds(int group) {
+        if (rawIds != null) {
+            return IntIterators.wrap(rawIds, groupStarts[group], groupSize(group));
+        }
+        return new StreamedGroupIterator(groupNamespaces[group], groupCategory(group));
+    }
+
+    /**
+     * Block ID of a raw ID, resolved through the registry snapshot
+     */
+    public String id(int rawId) {
+        return registry.id(rawId);
+    }
+
+    /**
+     * Walks the blocks of a namespace in raw ID order, yielding the missing ones of one category
+     */
+    private final class StreamedGroupIterator implements IntIterator {
+        private final BlockCategory category;
+        private final int end;
+        private int position;
+        private int next = -1;
+
+        StreamedGroupIterator(int namespaceIndex, BlockCategory category) {
+            this.category = category;
+            this.position = registry.namespaceStart(namespaceIndex);
+            this.end = registry.namespaceEnd(namespaceIndex);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next < 0 && position < end) {
+                int rawId = registry.rawIdInNamespaceOrder(position++);
+                if (missing.get(rawId) && categories.categoryOf(rawId) == category) {
+                    next = rawId;
+                }
+            }
+            return next >= 0;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int rawId = next;
+            next = -1;
+            return rawId;
+        }
+    }
+
+    /**
+     * Missing blocks as mod -> category -> block IDs, built on every call
+     */
+    public Map<String, Map<String, List<String>>> toMap() {
+        Map<String, Map<String, List<String>>> missingByMod = new TreeMap<>();
+        for (int group = 0; group < groupCount(); group++) {
+            List<String> ids = new ArrayList<>(groupSize(group));
+            for (IntIterator it = rawIds(group); it.hasNext(); ) {
+                ids.add(id(it.nextInt()));
+            }
+            missingByMod.computeIfAbsent(groupNamespace(group), k -> new TreeMap<>())
+                .put(groupCategory(group).displayName(), ids);
+        }
+        return missingByMod;
+    }
+}
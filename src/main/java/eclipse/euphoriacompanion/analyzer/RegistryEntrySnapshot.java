@@ -0,0 +1,80 @@
+package eclipse.euphoriacompanion.analyzer;
+
+import net.minecraft.entity.EntityType;
+import net.minecraft.item.BlockItem;
+import net.minecraft.item.Item;
+import net.minecraft.registry.Registry;
+import net.minecraft.util.Identifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Immutable copy of the IDs of a registry other than blocks (items, entity types), each with the category it is
+ * reported under. Copied on the client thread together with the {@link BlockRegistrySnapshot}, so the analysis
+ * never iterates live registries.
+ */
+public final class RegistryEntrySnapshot {
+    private final String[] ids;
+    private final String[] namespaces;
+    private final String[] categories;  // null = not reported
+
+    private RegistryEntrySnapshot(String[] ids, String[] namespaces, String[] categories) {
+        this.ids = ids;
+        this.namespaces = namespaces;
+        this.categories = categories;
+    }
+
+    /**
+     * Copies the IDs of all registry entries with their category; must run on the client thread
+     */
+    static <T> RegistryEntrySnapshot capture(Registry<T> registry, Function<T, String> categorizer) {
+        List<String> ids = new ArrayList<>(registry.size());
+        List<String> namespaces = new ArrayList<>(registry.size());
+        List<String> categories = new ArrayList<>(registry.size());
+        for (T entry : registry) {
+            Identifier id = registry.getId(entry);
+            ids.add(id.toString());
+            namespaces.add(id.getNamespace());
+            categories.add(categorizer.apply(entry));
+        }
+        return new RegistryEntrySnapshot(ids.toArray(new String[0]), namespaces.toArray(new String[0]),
+            categories.toArray(new String[0]));
+    }
+
+    /**
+     * Categorizes an item: block items can fall back to their block's ID, other items need an item.properties entry
+     */
+    static String itemCategory(Item item) {
+        return item instanceof BlockItem ? "Block Item" : "Item";
+    }
+
+    /**
+     * Categorizes an entity type by its spawn group (e.g. "Monster", "Water creature")
+     */
+    static String entityCategory(EntityType<?> entityType) {
+        String group = entityType.getSpawnGroup().name().toLowerCase(Locale.ROOT).replace('_', ' ');
+        return Character.toUpperCase(group.charAt(0)) + group.substring(1);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public String id(int index) {
+        return ids[index];
+    }
+
+    public String namespace(int index) {
+        return namespaces[index];
+    }
+
+    /**
+     * Category the entry is reported under, or null if it is not reported
+     */
+    public String category(int index) {
+        return categories[index];
+    }
+}
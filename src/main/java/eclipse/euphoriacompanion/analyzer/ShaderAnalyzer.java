@@ -2,22 +2,51 @@ package eclipse.euphoriacompanion.analyzer;
 
 import eclipse.euphoriacompanion.EuphoriaCompanion;
 import eclipse.euphoriacompanion.config.ModConfig;
+import eclipse.euphoriacompanion.parser.BlockEntry;
 import eclipse.euphoriacompanion.parser.BlockPropertiesParser;
+import eclipse.euphoriacompanion.parser.BlockPropertiesResult;
+import eclipse.euphoriacompanion.parser.IncrementalBlockPropertiesParser;
+import eclipse.euphoriacompanion.parser.ParseCache;
+import eclipse.euphoriacompanion.parser.PreprocessorEnvironment;
+import eclipse.euphoriacompanion.parser.PropertiesFile;
+import eclipse.euphoriacompanion.parser.SymbolTable;
 import eclipse.euphoriacompanion.report.AnalysisReport;
-import net.minecraft.block.Block;
-import net.minecraft.block.BlockState;
-import net.minecraft.registry.Registries;
-import net.minecraft.registry.tag.TagKey;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
 import net.minecraft.util.Identifier;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 
 /**
  * Main analyzer that orchestrates all phases of shader compatibility analysis.
+ * Block IDs are handled as symbols of the run's {@link SymbolTable}, shared with the parser and the registry snapshot.
+ * Block data comes from a {@link BlockRegistrySnapshot} captured once per run and shared by all packs.
+ * Block coverage is a {@link BitSet} over raw IDs, matched against the {@link BlockCategories} computed once per run.
  */
-public record ShaderAnalyzer(ModConfig config, int currentMCVersion) {
+public record ShaderAnalyzer(ModConfig config, int currentMCVersion, SymbolTable symbols, ParseCache parseCache,
+                             BlockRegistrySnapshot registry, BlockCategories categories) {
+    // Bounded pool for the independent analysis phases of a pack; daemon threads won't prevent game shutdown
+    private static final ExecutorService PHASE_EXECUTOR = Executors.newFixedThreadPool(
+        Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors())), runnable -> {
+            Thread thread = new Thread(runnable, "EuphoriaCompanion-Phase");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    public ShaderAnalyzer(ModConfig config, int currentMCVersion, SymbolTable symbols, ParseCache parseCache,
+                          BlockRegistrySnapshot registry) {
+        this(config, currentMCVersion, symbols, parseCache, registry, BlockCategories.compute(registry, config));
+    }
 
     /**
      * Analyzes a single shaderpack
@@ -26,45 +55,80 @@ public record ShaderAnalyzer(ModConfig config, int currentMCVersion) {
         String shaderpackName = shaderpackPath.getFileName().toString();
         EuphoriaCompanion.LOGGER.info("Processing: {}", shaderpackName);
 
-        // Step 1: Parse block.properties
-        BlockPropertiesParser parser = parseBlockProperties(shaderpackPath);
-        if (parser == null) {
+        // Step 1: Parse block.properties and the rest of the properties family (or reuse cached parses of unchanged content)
+        PackProperties properties = parseProperties(shaderpackPath);
+        if (properties == null) {
             EuphoriaCompanion.LOGGER.warn("No block.properties found in {}", shaderpackName);
             return new AnalysisReport(shaderpackName);
         }
+        BlockPropertiesResult result = properties.blocks();
 
-        // Step 2: Tag Resolution
-        Map<String, Set<String>> tagToBlocks = resolveTagsToBlocks(parser);
+        // Base block IDs of all direct definitions, shared by the phases below
+        IntSet directlyDefinedBlocks = collectDirectlyDefinedBlocks(result);
+        IntSet definedItems = properties.items() == null ? null : collectDirectlyDefinedBlocks(properties.items());
+        IntSet definedEntities = properties.entities() == null ? null : collectDirectlyDefinedBlocks(properties.entities());
 
-        // Step 3: Categorize Missing Blocks
-        Map<String, Map<String, List<String>>> missingBlocksByMod = categorizeMissingBlocks(
-                parser, tagToBlocks);
+        // Parsing the entries interned their base IDs, so the phases can look symbols up without locking the table
+        SymbolTable.Snapshot lookup = symbols.snapshot();
+        BitSet definedBlocks = registeredBlocks(directlyDefinedBlocks);
+
+        // Step 2: Tag Resolution
+        Map<String, BitSet> tagToBlocks = resolveTagsToBlocks(result, definedBlocks);
+
+        // Blocks covered by direct definitions or used tags
+        BitSet coveredBlocks = collectCoveredBlocks(result, definedBlocks, tagToBlocks);
+
+        // Steps 3-7 only read the parse and the tag resolution, so they run concurrently
+        // Step 3: Categorize Missing Blocks, Items and Entities
+        CompletableFuture<MissingBlocks> missingBlocks =
+            runPhase(() -> categorizeMissingBlocks(coveredBlocks));
+        CompletableFuture<Map<String, MissingBlocks>> missingBlocksByDimension =
+            runPhase(() -> categorizeMissingBlocksByDimension(properties.dimensionBlocks()));
+        CompletableFuture<Map<String, Map<String, List<String>>>> missingItemsByMod =
+            runPhase(() -> definedItems == null ? null : categorizeMissing(registry.items(), definedItems, lookup));
+        CompletableFuture<Map<String, Map<String, List<String>>>> missingEntitiesByMod =
+            runPhase(() -> definedEntities == null ? null
+                : categorizeMissing(registry.entityTypes(), definedEntities, lookup));
 
         // Step 4: Validate BlockStates
-        Map<String, Map<String, List<String>>> incompleteBlockStates =
-                BlockStateValidator.validateBlockStates(parser.getBlockToProperty());
+        CompletableFuture<Map<String, Map<String, List<String>>>> incompleteBlockStates =
+            runPhase(() -> BlockStateValidator.validateBlockStates(result.getBlockEntries(), lookup));
 
         // Step 5: Validate Render Layers
-        Map<String, RenderLayerMismatch> renderLayerMismatches = validateRenderLayers(parser);
+        CompletableFuture<Map<String, RenderLayerMismatch>> renderLayerMismatches =
+            runPhase(() -> validateRenderLayers(result, lookup));
 
         // Step 6: Get Duplicate Definitions (detected during parsing)
-        Map<String, List<Integer>> duplicateDefinitions = parser.getDuplicateBlocks();
+        Map<String, List<Integer>> duplicateDefinitions = result.getDuplicateBlocks();
 
         // Step 7: Calculate statistics
         int totalBlocksInGame = calculateTotalBlocksInGame();
-        int totalBlocksInShader = calculateTotalBlocksInShader(parser.getBlockToProperty(), tagToBlocks, parser.getTagToProperty());
+        CompletableFuture<Integer> totalBlocksInShader =
+            runPhase(() -> calculateTotalBlocksInShader(directlyDefinedBlocks, coveredBlocks));
+
+        // Compare the assignments under each configured target environment with the current one
+        CompletableFuture<Map<String, Map<String, AssignmentDifference>>> targetDifferences =
+            runPhase(() -> compareTargets(result, properties.targets()));
+
+        awaitPhases(missingBlocks, missingBlocksByDimension, missingItemsByMod, missingEntitiesByMod,
+            incompleteBlockStates, renderLayerMismatches, totalBlocksInShader, targetDifferences);
 
         // Step 8: Create report (Very nasty I know)
         AnalysisReport report = new AnalysisReport(shaderpackName);
-        report.setMissingBlocksByMod(missingBlocksByMod);
-        report.setTagCoverage(tagToBlocks);
-        report.setTagDefinitions(parser.getTagDefinitions());
-        report.setTagToProperty(parser.getTagToProperty());
-        report.setRenderLayerMismatches(renderLayerMismatches);
-        report.setIncompleteBlockStates(incompleteBlockStates);
+        report.setMissingBlocks(missingBlocks.join());
+        report.setMissingBlocksByDimension(missingBlocksByDimension.join());
+        report.setMissingItemsByMod(missingItemsByMod.join());
+        report.setMissingEntitiesByMod(missingEntitiesByMod.join());
+        report.setTagCoverage(toNames(tagToBlocks));
+        report.setTagDefinitions(result.getTagDefinitions());
+        report.setTagToProperty(result.getTagToProperty());
+        report.setRenderLayerMismatches(renderLayerMismatches.join());
+        report.setIncompleteBlockStates(incompleteBlockStates.join());
         report.setDuplicateDefinitions(duplicateDefinitions);
+        report.setDuplicateAssignments(result.getDuplicateAssignments());
+        report.setTargetDifferences(targetDifferences.join());
         report.setTotalBlocksInGame(totalBlocksInGame);
-        report.setTotalBlocksInShader(totalBlocksInShader);
+        report.setTotalBlocksInShader(totalBlocksInShader.join());
         report.setTagSupportEnabled(config.isTagSupportEnabled());
 
         EuphoriaCompanion.LOGGER.info("Analysis complete for {}", shaderpackName);
@@ -72,109 +136,219 @@ public record ShaderAnalyzer(ModConfig config, int currentMCVersion) {
     }
 
     /**
-     * Parse block.properties file with conditional directives
+     * Runs an analysis phase on the phase executor
      */
-    private BlockPropertiesParser parseBlockProperties(Path shaderpackPath) throws IOException {
-        Path propertiesFile = null;
-        Path tempFile = null;
+    private static <T> CompletableFuture<T> runPhase(Supplier<T> phase) {
+        return CompletableFuture.supplyAsync(phase, PHASE_EXECUTOR);
+    }
 
-        // Check if it's a directory or ZIP file
-        if (Files.isDirectory(shaderpackPath)) {
-            propertiesFile = shaderpackPath.resolve("shaders/block.properties");
-            if (!Files.exists(propertiesFile)) {
-                return null;
+    /**
+     * Waits for all phases, rethrowing the failure of the first one that failed
+     */
+    private static void awaitPhases(CompletableFuture<?>... phases) {
+        try {
+            CompletableFuture.allOf(phases).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
             }
-        } else if (shaderpackPath.toString().toLowerCase().endsWith(".zip")) {
-            // Validate ZIP file before opening
-            if (!isValidZipFile(shaderpackPath)) {
-                EuphoriaCompanion.LOGGER.warn("File is not a valid ZIP: {}", shaderpackPath.getFileName());
+            throw e;
+        }
+    }
+
+    /**
+     * Parses block.properties together with the rest of the properties family, opening the pack only once
+     */
+    private PackProperties parseProperties(Path shaderpackPath) throws IOException {
+        // Check if it's a directory or ZIP file
+        if (!Files.isDirectory(shaderpackPath) && !shaderpackPath.toString().toLowerCase().endsWith(".zip")) {
+            return null;
+        }
+
+        // Opening a ZIP reads its central directory, which also validates it
+        ShaderpackFiles files;
+        try {
+            files = ShaderpackFiles.open(shaderpackPath);
+        } catch (IOException e) {
+            EuphoriaCompanion.LOGGER.warn("File is not a valid ZIP: {}", shaderpackPath.getFileName());
+            return null;
+        }
+
+        try (files) {
+            String blockProperties = ShaderpackFiles.SHADERS_DIR + PropertiesFile.BLOCK.fileName();
+            if (!files.exists(blockProperties)) {
                 return null;
             }
 
-            try (FileSystem zipFs = FileSystems.newFileSystem(shaderpackPath, (ClassLoader) null)) {
-                Path zipPropertiesFile = zipFs.getPath("/shaders/block.properties");
-                if (!Files.exists(zipPropertiesFile)) {
-                    return null;
-                }
+            PreprocessorEnvironment environment = PreprocessorEnvironment.detect(config, currentMCVersion);
 
-                // Copy to temp file for parsing
-                tempFile = Files.createTempFile("block", ".properties");
-                try {
-                    Files.copy(zipPropertiesFile, tempFile, StandardCopyOption.REPLACE_EXISTING);
-                    propertiesFile = tempFile;
-                } catch (IOException e) {
-                    // Clean up temp file if copy fails
-                    Files.deleteIfExists(tempFile);
-                    throw e;
-                }
-            } catch (Exception e) {
-                // Clean up temp file if ZIP reading fails
-                if (tempFile != null) {
-                    try {
-                        Files.deleteIfExists(tempFile);
-                    } catch (IOException ignored) {}
-                }
-                throw e;
+            // Unpacked packs are usually the ones being edited, so only lines changed since the last run are re-parsed
+            PropertiesSource<BlockPropertiesResult> blocks = files.isZip()
+                ? () -> parseCached(files.read(blockProperties), environment)
+                : () -> parseIncremental(files.path(blockProperties), environment);
+
+            Map<String, PreprocessorEnvironment> targets = PreprocessorEnvironment.parseTargets(config.targetEnvironments, environment);
+
+            // All files are parsed before the pack is closed
+            return parseFamily(files, blocks, environment, targets);
+        }
+    }
+
+    /**
+     * Reads and parses block.properties, item.properties, entity.properties and the per-dimension overrides
+     * (e.g. world-1/block.properties) of a pack concurrently, plus block.properties once more under all target
+     * environments. Returns once all of them are parsed.
+     */
+    private PackProperties parseFamily(ShaderpackFiles files, PropertiesSource<BlockPropertiesResult> blockProperties,
+                                       PreprocessorEnvironment environment,
+                                       Map<String, PreprocessorEnvironment> targets) throws IOException {
+        Map<String, String> dimensionFiles = files.dimensionBlockProperties();
+
+        List<CompletableFuture<?>> tasks = new ArrayList<>();
+        CompletableFuture<BlockPropertiesResult> blocks = parseAsync(blockProperties, tasks);
+        CompletableFuture<BlockPropertiesResult> items = parseAsync(
+            () -> parseOptional(files, ShaderpackFiles.SHADERS_DIR + PropertiesFile.ITEM.fileName(), PropertiesFile.ITEM, environment), tasks);
+        CompletableFuture<BlockPropertiesResult> entities = parseAsync(
+            () -> parseOptional(files, ShaderpackFiles.SHADERS_DIR + PropertiesFile.ENTITY.fileName(), PropertiesFile.ENTITY, environment), tasks);
+        Map<String, CompletableFuture<BlockPropertiesResult>> dimensions = new LinkedHashMap<>();
+        dimensionFiles.forEach((world, file) ->
+            dimensions.put(world, parseAsync(() -> parseOptional(files, file, PropertiesFile.BLOCK, environment), tasks)));
+        CompletableFuture<Map<String, BlockPropertiesResult>> targetResults = targets.isEmpty()
+            ? CompletableFuture.completedFuture(Map.of())
+            : parseAsync(() -> parseTargets(files.read(ShaderpackFiles.SHADERS_DIR + PropertiesFile.BLOCK.fileName()), targets), tasks);
+
+        try {
+            // Waits for every task, even if one fails, so none is still reading when the pack is closed
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
             }
+            throw e;
         }
 
-        if (propertiesFile == null) {
+        Map<String, BlockPropertiesResult> dimensionBlocks = new LinkedHashMap<>();
+        dimensions.forEach((world, task) -> dimensionBlocks.put(world, task.join()));
+        return new PackProperties(blocks.join(), items.join(), entities.join(), dimensionBlocks, targetResults.join());
+    }
+
+    /**
+     * Starts a parse on the common pool and adds it to the tasks to wait for
+     */
+    private static <T> CompletableFuture<T> parseAsync(PropertiesSource<T> source, List<CompletableFuture<?>> tasks) {
+        CompletableFuture<T> task = CompletableFuture.supplyAsync(() -> {
+            try {
+                return source.parse();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        tasks.add(task);
+        return task;
+    }
+
+    /**
+     * Parses an optional member of the properties family, returning null if the pack does not have it
+     */
+    private BlockPropertiesResult parseOptional(ShaderpackFiles files, String name, PropertiesFile kind,
+                                                PreprocessorEnvironment environment) throws IOException {
+        if (!files.exists(name)) {
             return null;
         }
 
-        try {
-            BlockPropertiesParser parser = new BlockPropertiesParser(config, currentMCVersion);
-            parser.parse(propertiesFile);
+        ByteBuffer content = files.read(name);
+        if (kind == PropertiesFile.BLOCK) {
+            return parseCached(content, environment);
+        }
 
-            // Clean up temp file if created
-            if (tempFile != null) {
-                Files.deleteIfExists(propertiesFile);
-            }
+        // item.properties and entity.properties are small, so they are not cached
+        BlockPropertiesParser parser = new BlockPropertiesParser(config, List.of(environment), symbols, kind);
+        parser.parse(content);
+        return parser.getResult(0);
+    }
 
-            return parser;
-        } catch (Exception e) {
-            // Clean up temp file on parsing failure
-            if (tempFile != null) {
-                try {
-                    Files.deleteIfExists(tempFile);
-                } catch (IOException ignored) {}
-            }
-            throw e;
+    /**
+     * Parses block.properties once under all target environments, keyed like the targets
+     */
+    private Map<String, BlockPropertiesResult> parseTargets(ByteBuffer content, Map<String, PreprocessorEnvironment> targets) {
+        BlockPropertiesParser parser = new BlockPropertiesParser(config, List.copyOf(targets.values()));
+        parser.parseParallel(content);
+
+        Map<String, BlockPropertiesResult> results = new LinkedHashMap<>();
+        Iterator<BlockPropertiesResult> parsed = parser.getResults().iterator();
+        for (String target : targets.keySet()) {
+            results.put(target, parsed.next());
         }
+        return results;
     }
 
     /**
-     * Tag Resolution - resolves tag identifiers to actual blocks
+     * Brings the pack's incremental parse up to date with the file on disk
+     */
+    private BlockPropertiesResult parseIncremental(Path propertiesFile, PreprocessorEnvironment environment) throws IOException {
+        IncrementalBlockPropertiesParser parser = parseCache.incremental(propertiesFile.toAbsolutePath().normalize(), config, environment);
+
+        // Read into the heap rather than mapped: the parser keeps the bytes to diff the next edit against, and a
+        // mapping would change under it (or keep the file locked) while the file is being edited
+        long start = System.nanoTime();
+        BlockPropertiesResult result = parser.update(Files.readAllBytes(propertiesFile));
+        EuphoriaCompanion.LOGGER.info("Parsed {} changed line(s) of block.properties in {} ms",
+            parser.getLastReparsedLines(), (System.nanoTime() - start) / 1_000_000);
+        return result.withSymbols(symbols);
+    }
+
+    /**
+     * Parses block.properties content, or returns the cached result if the same content was parsed
+     * before under the same environment
+     */
+    private BlockPropertiesResult parseCached(ByteBuffer content, PreprocessorEnvironment environment) {
+        ParseCache.Key key = ParseCache.key(content, environment, config.isTagSupportEnabled());
+
+        BlockPropertiesResult cached = parseCache.get(key);
+        if (cached != null) {
+            EuphoriaCompanion.LOGGER.info("block.properties unchanged since last analysis, reusing cached parse");
+            return cached.withSymbols(symbols);
+        }
+
+        // Parsed into a table of its own, so the cached result does not keep this run's table alive
+        BlockPropertiesParser parser = new BlockPropertiesParser(config, List.of(environment), new SymbolTable());
+        parser.parseParallel(content);
+
+        BlockPropertiesResult result = parser.getResult(0);
+        parseCache.put(key, result);
+        return result.withSymbols(symbols);
+    }
+
+    /**
+     * Collects the base block IDs of all direct definitions (blockstate strings reduced to their block ID)
+     */
+    private IntSet collectDirectlyDefinedBlocks(BlockPropertiesResult result) {
+        List<BlockEntry> entries = result.getBlockEntries();
+        IntSet directlyDefinedBlocks = new IntOpenHashSet(entries.size());
+        for (BlockEntry entry : entries) {
+            directlyDefinedBlocks.add(entry.baseSymbol());
+        }
+        return directlyDefinedBlocks;
+    }
+
+    /**
+     * Tag Resolution - resolves tag identifiers to actual blocks (raw IDs) through the snapshot's tag index
      * Excludes blocks that are already directly defined in block.properties
      * Implements first-assignment-wins: blocks claimed by earlier tags won't appear in later tags
      * Only processes tags that are actually assigned to block.xxxxx properties
      */
-    private Map<String, Set<String>> resolveTagsToBlocks(BlockPropertiesParser parser) {
-        Map<String, Set<String>> tagToBlocks = new LinkedHashMap<>();  // Preserve order
+    private Map<String, BitSet> resolveTagsToBlocks(BlockPropertiesResult result, BitSet definedBlocks) {
+        Map<String, BitSet> tagToBlocks = new LinkedHashMap<>();  // Preserve order
 
         if (!config.isTagSupportEnabled()) {
             return tagToBlocks;
         }
 
-        Map<String, String> tagDefinitions = parser.getTagDefinitions();
-        Map<String, Integer> blockToProperty = parser.getBlockToProperty();
-        Map<String, Integer> tagToProperty = parser.getTagToProperty();
-
-        // Build set of directly defined blocks (extract base block IDs from blockstate strings)
-        Set<String> directlyDefinedBlocks = new HashSet<>();
-        for (String fullId : blockToProperty.keySet()) {
-            BlockStateValidator.BlockStateSpec spec = BlockStateValidator.parseBlockState(fullId);
-            if (spec != null) {
-                // Has blockstates - add just the block ID
-                directlyDefinedBlocks.add(spec.blockId());
-            } else {
-                // No blockstates - add as is
-                directlyDefinedBlocks.add(fullId);
-            }
-        }
+        Map<String, String> tagDefinitions = result.getTagDefinitions();
+        Map<String, Integer> tagToProperty = result.getTagToProperty();
 
         // Track blocks already claimed by tags (first-assignment-wins)
-        Set<String> alreadyClaimedBlocks = new HashSet<>(directlyDefinedBlocks);
+        BitSet alreadyClaimedBlocks = (BitSet) definedBlocks.clone();
 
         // Process tags in order of assignment (tagToProperty preserves insertion order from parsing)
         // Only process tags that are actually assigned to block.XX properties
@@ -189,20 +363,20 @@ public record ShaderAnalyzer(ModConfig config, int currentMCVersion) {
             }
 
             // Value can be one or more tag references like "%oak_logs" or "%corals %coral_plants %wall_corals"
-            Set<String> blocks = resolveTagReferences(value);
+            BitSet blocks = resolveTagReferences(value);
 
             // Remove blocks that are already claimed (by direct definitions or earlier tags)
-            blocks.removeAll(alreadyClaimedBlocks);
+            blocks.andNot(alreadyClaimedBlocks);
 
             // Only include tag if it still has blocks not covered by earlier definitions
             if (!blocks.isEmpty()) {
                 tagToBlocks.put(identifier, blocks);
 
                 // Mark these blocks as claimed for future tags
-                alreadyClaimedBlocks.addAll(blocks);
+                alreadyClaimedBlocks.or(blocks);
 
                 EuphoriaCompanion.LOGGER.debug("Resolved tag {} ({}) to {} blocks (after filtering already claimed)",
-                        identifier, value, blocks.size());
+                        identifier, value, blocks.cardinality());
             } else {
                 EuphoriaCompanion.LOGGER.debug("Tag {} ({}) fully covered by earlier definitions, skipping",
                         identifier, value);
@@ -213,11 +387,11 @@ public record ShaderAnalyzer(ModConfig config, int currentMCVersion) {
     }
 
     /**
-     * Resolves one or more tag references (space-separated) to block IDs
+     * Resolves one or more tag references (space-separated) to the union of their blocks
      * Example: "%oak_logs" or "%corals %coral_plants %wall_corals"
      */
-    private Set<String> resolveTagReferences(String tagReferences) {
-        Set<String> allBlocks = new HashSet<>();
+    private BitSet resolveTagReferences(String tagReferences) {
+        BitSet allBlocks = new BitSet(registry.size());
 
         // Split by whitespace to handle multiple tag references
         String[] refs = tagReferences.trim().split("\\s+");
@@ -243,227 +417,182 @@ public record ShaderAnalyzer(ModConfig config, int currentMCVersion) {
             }
 
             // Resolve this tag to blocks
-            Set<String> blocks = resolveSingleTag(tagName);
-            allBlocks.addAll(blocks);
+            resolveSingleTag(tagName, allBlocks);
         }
 
         return allBlocks;
     }
 
     /**
-     * Resolves a single tag name to a set of block IDs
+     * Resolves a single tag name and adds its blocks to the given set
      * Tag name should be in format "namespace:tagname" (e.g., "minecraft:oak_logs")
      */
-    private Set<String> resolveSingleTag(String tagName) {
-        Set<String> blocks = new HashSet<>();
-
-        try {
-            // Parse tag name (e.g., "minecraft:leaves" or "c:ores")
-            String[] parts = tagName.split(":", 2);
-            if (parts.length != 2) {
-                EuphoriaCompanion.LOGGER.warn("Invalid tag name format: {}", tagName);
-                return blocks;
-            }
-
-            Identifier tagId = Identifier.of(parts[0], parts[1]);
-            TagKey<Block> tagKey = TagKey.of(Registries.BLOCK.getKey(), tagId);
-
-            // Get all blocks with this tag
-            Registries.BLOCK.iterateEntries(tagKey).forEach(entry -> {
-                Block block = entry.value();
-                Identifier blockId = Registries.BLOCK.getId(block);
-                blocks.add(blockId.toString());
-            });
-
-        } catch (Exception e) {
-            EuphoriaCompanion.LOGGER.error("Failed to resolve tag: {}", tagName, e);
+    private void resolveSingleTag(String tagName, BitSet blocks) {
+        // Get all blocks with this tag from the snapshot's tag index
+        BitSet members = registry.tagMembers(tagName);
+        if (members != null) {
+            blocks.or(members);
+            return;
         }
 
-        return blocks;
+        // Parse tag name (e.g., "minecraft:leaves" or "c:ores")
+        String[] parts = tagName.split(":", 2);
+        if (parts.length != 2) {
+            EuphoriaCompanion.LOGGER.warn("Invalid tag name format: {}", tagName);
+        } else if (Identifier.tryParse(tagName) == null) {
+            EuphoriaCompanion.LOGGER.error("Failed to resolve tag: {}", tagName);
+        } else {
+            EuphoriaCompanion.LOGGER.warn("Unknown block tag: {}", tagName);
+        }
     }
 
     /**
-     * Categorize Missing Blocks
+     * Collects the raw IDs of all registered blocks covered by the shader: direct definitions plus blocks of tags
+     * assigned to a block.XX property
      */
-    private Map<String, Map<String, List<String>>> categorizeMissingBlocks(
-            BlockPropertiesParser parser,
-            Map<String, Set<String>> tagToBlocks) {
-
-        EuphoriaCompanion.LOGGER.info("Categorizing blocks using {} scan mode",
-            config.scanMode == ModConfig.ScanMode.DEEP ? "DEEP" : "QUICK");
-
-        Map<String, Integer> blockToProperty = parser.getBlockToProperty();
-        Map<String, Integer> tagToProperty = parser.getTagToProperty();
-
-        // Build set of all covered blocks (extract block IDs from blockstate strings)
-        Set<String> coveredBlocks = new HashSet<>();
-        for (String fullId : blockToProperty.keySet()) {
-            BlockStateValidator.BlockStateSpec spec = BlockStateValidator.parseBlockState(fullId);
-            if (spec != null) {
-                // Has blockstates - add just the block ID
-                coveredBlocks.add(spec.blockId());
-            } else {
-                // No blockstates - add as is
-                coveredBlocks.add(fullId);
-            }
-        }
+    private BitSet collectCoveredBlocks(BlockPropertiesResult result, BitSet definedBlocks, Map<String, BitSet> tagToBlocks) {
+        BitSet coveredBlocks = (BitSet) definedBlocks.clone();
 
-        // Add blocks covered by tags
-        for (Map.Entry<String, Integer> entry : tagToProperty.entrySet()) {
-            String tagIdentifier = entry.getKey();
-            if (tagToBlocks.containsKey(tagIdentifier)) {
-                coveredBlocks.addAll(tagToBlocks.get(tagIdentifier));
+        for (String tagIdentifier : result.getTagToProperty().keySet()) {
+            BitSet blocks = tagToBlocks.get(tagIdentifier);
+            if (blocks != null) {
+                coveredBlocks.or(blocks);
             }
         }
 
-        // Categorize all blocks from registry
-        Map<String, Map<String, List<String>>> missingByMod = new TreeMap<>();
-
-        for (Block block : Registries.BLOCK) {
-            Identifier blockId = Registries.BLOCK.getId(block);
-            String blockIdStr = blockId.toString();
+        return coveredBlocks;
+    }
 
-            // Skip if already covered (by direct definitions or used tags)
-            if (coveredBlocks.contains(blockIdStr)) {
-                continue;
+    /**
+     * Raw IDs of the registered blocks among the given block symbols
+     */
+    private BitSet registeredBlocks(IntSet blockSymbols) {
+        BitSet rawIds = new BitSet(registry.size());
+        for (IntIterator iterator = blockSymbols.iterator(); iterator.hasNext(); ) {
+            int rawId = registry.rawId(iterator.nextInt());
+            if (rawId >= 0) {
+                rawIds.set(rawId);
             }
+        }
+        return rawIds;
+    }
 
-            // Categorize based on block properties
-            String category = categorizeBlock(block);
-            if (category != null) {
-                String namespace = blockId.getNamespace();
-                missingByMod.computeIfAbsent(namespace, k -> new TreeMap<>())
-                        .computeIfAbsent(category, k -> new ArrayList<>())
-                        .add(blockIdStr);
+    /**
+     * Converts resolved tag blocks back to block ID strings for the report
+     */
+    private Map<String, Set<String>> toNames(Map<String, BitSet> tagToBlocks) {
+        Map<String, Set<String>> tagCoverage = new LinkedHashMap<>();
+        for (Map.Entry<String, BitSet> entry : tagToBlocks.entrySet()) {
+            BitSet blocks = entry.getValue();
+            Set<String> names = new HashSet<>(blocks.cardinality() * 2);
+            for (int rawId = blocks.nextSetBit(0); rawId >= 0; rawId = blocks.nextSetBit(rawId + 1)) {
+                names.add(registry.id(rawId));
             }
+            tagCoverage.put(entry.getKey(), names);
         }
-
-        return missingByMod;
+        return tagCoverage;
     }
 
     /**
-     * Categorizes a block based on config-enabled categories
+     * Categorize Missing Blocks - the blocks of the category masks that are not covered, as raw IDs grouped by
+     * mod and category
      */
-    private String categorizeBlock(Block block) {
-        if (config.scanMode == ModConfig.ScanMode.DEEP) {
-            return categorizeBlockDeep(block);
-        } else {
-            return categorizeBlockQuick(block);
+    private MissingBlocks categorizeMissingBlocks(BitSet coveredBlocks) {
+        if (config.streamMissingBlocks) {
+            return MissingBlocks.stream(registry, categories, coveredBlocks);
         }
+        return MissingBlocks.collect(registry, categories, coveredBlocks);
     }
 
     /**
-     * Quick scan - only checks the default blockstate
+     * Categorizes the missing blocks of each per-dimension block.properties override, keyed by world folder
      */
-    private String categorizeBlockQuick(Block block) {
-        BlockState defaultState = block.getDefaultState();
-
-        // Check categories in priority order based on config
-        // Block Entity is highest priority since it may require special shader handling
-        if (config.checkBlockEntity && block instanceof net.minecraft.block.BlockEntityProvider) {
-            return "Block Entity";
-        } else if (config.checkLightEmitting && defaultState.getLuminance() > 0) {
-            return "Light Emitting";
-        } else if (config.checkTranslucent && isTranslucent(defaultState)) {
-            return "Translucent";
-        } else if (config.checkNonFull && isNonFull(defaultState)) {
-            return "Non-Full";
-        } else if (config.checkFull) {
-            return "Full";
+    private Map<String, MissingBlocks> categorizeMissingBlocksByDimension(Map<String, BlockPropertiesResult> dimensionBlocks) {
+        Map<String, MissingBlocks> missingBlocksByDimension = new TreeMap<>();
+        for (Map.Entry<String, BlockPropertiesResult> entry : dimensionBlocks.entrySet()) {
+            BlockPropertiesResult dimensionResult = entry.getValue();
+            BitSet dimensionDefinedBlocks = registeredBlocks(collectDirectlyDefinedBlocks(dimensionResult));
+            BitSet dimensionCoveredBlocks = collectCoveredBlocks(dimensionResult, dimensionDefinedBlocks,
+                resolveTagsToBlocks(dimensionResult, dimensionDefinedBlocks));
+            missingBlocksByDimension.put(entry.getKey(), categorizeMissingBlocks(dimensionCoveredBlocks));
         }
-
-        return null; // Skip if category is disabled
+        return missingBlocksByDimension;
     }
 
     /**
-     * Deep scan - checks ALL possible blockstates
-     * Catches cases like redstone lamps that only emit light when lit=true
+     * Groups the registry entries that are not covered by namespace and category (null category = skipped)
      */
-    private String categorizeBlockDeep(Block block) {
-        // Block Entity check first (same as quick scan - highest priority)
-        if (config.checkBlockEntity && block instanceof net.minecraft.block.BlockEntityProvider) {
-            return "Block Entity";
-        }
+    private Map<String, Map<String, List<String>>> categorizeMissing(RegistryEntrySnapshot entries, IntSet covered,
+                                                                     SymbolTable.Snapshot lookup) {
+        Map<String, Map<String, List<String>>> missingByMod = new TreeMap<>();
 
-        boolean anyLightEmitting = false;
-        boolean anyTranslucent = false;
-        boolean anyNonFull = false;
-        boolean allFull = true;
+        for (int i = 0; i < entries.size(); i++) {
+            String idStr = entries.id(i);
 
-        // Iterate through all possible blockstates
-        for (BlockState state : block.getStateManager().getStates()) {
-            if (config.checkLightEmitting && state.getLuminance() > 0) {
-                anyLightEmitting = true;
-            }
-            if (config.checkTranslucent && isTranslucent(state)) {
-                anyTranslucent = true;
-            }
-            if (config.checkNonFull && isNonFull(state)) {
-                anyNonFull = true;
-            }
-            if (!state.isOpaqueFullCube(null, null)) {
-                allFull = false;
+            // Skip if already covered (by direct definitions or used tags); IDs never interned cannot be covered
+            int symbol = lookup.find(idStr);
+            if (symbol != SymbolTable.NONE && covered.contains(symbol)) {
+                continue;
             }
-        }
 
-        // Return the highest priority category that matches (same priority order as quick scan)
-        if (config.checkLightEmitting && anyLightEmitting) {
-            return "Light Emitting";
-        } else if (config.checkTranslucent && anyTranslucent) {
-            return "Translucent";
-        } else if (config.checkNonFull && anyNonFull) {
-            return "Non-Full";
-        } else if (config.checkFull && allFull) {
-            return "Full";
+            // Category was decided from the entry's properties when the registry was copied
+            String category = entries.category(i);
+            if (category != null) {
+                missingByMod.computeIfAbsent(entries.namespace(i), k -> new TreeMap<>())
+                        .computeIfAbsent(category, k -> new ArrayList<>())
+                        .add(idStr);
+            }
         }
 
-        return null; // Skip if category is disabled
+        return missingByMod;
     }
 
     /**
-     * Checks if a block is translucent (uses translucent render layer)
+     * Block assignments under each target environment that differ from the current environment, sorted by block ID
      */
-    private boolean isTranslucent(BlockState state) {
-        try {
-            // Use Minecraft's actual render layer determination
-            net.minecraft.client.render.RenderLayer renderLayer =
-                net.minecraft.client.render.RenderLayers.getBlockLayer(state);
-            return renderLayer == net.minecraft.client.render.RenderLayer.getTranslucent();
-        } catch (Exception e) {
-            return false;
+    private Map<String, Map<String, AssignmentDifference>> compareTargets(BlockPropertiesResult result,
+                                                                          Map<String, BlockPropertiesResult> targets) {
+        Map<String, Map<String, AssignmentDifference>> differencesByTarget = new LinkedHashMap<>();
+        Map<String, Integer> current = result.getBlockToProperty();
+
+        for (Map.Entry<String, BlockPropertiesResult> target : targets.entrySet()) {
+            Map<String, Integer> assigned = target.getValue().getBlockToProperty();
+            Map<String, AssignmentDifference> differences = new TreeMap<>();
+            for (Map.Entry<String, Integer> entry : current.entrySet()) {
+                Integer targetId = assigned.get(entry.getKey());
+                if (!entry.getValue().equals(targetId)) {
+                    differences.put(entry.getKey(), new AssignmentDifference(entry.getValue(), targetId));
+                }
+            }
+            for (Map.Entry<String, Integer> entry : assigned.entrySet()) {
+                if (!current.containsKey(entry.getKey())) {
+                    differences.put(entry.getKey(), new AssignmentDifference(null, entry.getValue()));
+                }
+            }
+            differencesByTarget.put(target.getKey(), differences);
         }
-    }
 
-    /**
-     * Checks if a block is non-full (allows light to leak on any side)
-     */
-    private boolean isNonFull(BlockState state) {
-        try {
-            // Check if light can leak through any side
-            return !state.isOpaqueFullCube(null, null);
-        } catch (Exception e) {
-            return false;
-        }
+        return differencesByTarget;
     }
 
     /**
      * Validate Render Layers
      */
-    private Map<String, RenderLayerMismatch> validateRenderLayers(BlockPropertiesParser parser) {
+    private Map<String, RenderLayerMismatch> validateRenderLayers(BlockPropertiesResult result, SymbolTable.Snapshot lookup) {
         Map<String, RenderLayerMismatch> mismatches = new HashMap<>();
 
         if (!config.validateRenderLayers) {
             return mismatches;
         }
 
-        Map<String, String> blockToRenderLayer = parser.getBlockToRenderLayer();
+        Map<String, String> blockToRenderLayer = result.getBlockToRenderLayer();
 
         for (Map.Entry<String, String> entry : blockToRenderLayer.entrySet()) {
             String blockId = entry.getKey();
             String expectedLayer = entry.getValue();
 
             // Get actual render layer from block
-            String actualLayer = getActualRenderLayer(blockId);
+            String actualLayer = getActualRenderLayer(blockId, lookup);
 
             if (actualLayer != null && !expectedLayer.equalsIgnoreCase(actualLayer)) {
                 mismatches.put(blockId, new RenderLayerMismatch(expectedLayer, actualLayer));
@@ -474,100 +603,56 @@ public record ShaderAnalyzer(ModConfig config, int currentMCVersion) {
     }
 
     /**
-     * Gets the actual render layer of a block
+     * Gets the actual render layer of a block (of its default state, as captured in the registry snapshot)
      */
-    private String getActualRenderLayer(String blockId) {
-        try {
-            Identifier id = Identifier.tryParse(blockId);
-            if (id == null) {
-                return null;
-            }
-
-            // Check if the block is actually registered (not just returning AIR as fallback)
-            if (!Registries.BLOCK.containsId(id)) {
-                return null; // Block doesn't exist in registry
-            }
-
-            Block block = Registries.BLOCK.get(id);
-
-            BlockState state = block.getDefaultState();
-            if (state == null) {
-                EuphoriaCompanion.LOGGER.warn("Block has no default state: {}", id);
-                return null;
-            }
-
-            // Use Minecraft's actual render layer API
-            net.minecraft.client.render.RenderLayer renderLayer =
-                net.minecraft.client.render.RenderLayers.getBlockLayer(state);
-
-            // Map Minecraft's render layers to shader layer names
-            if (renderLayer == net.minecraft.client.render.RenderLayer.getSolid()) {
-                return "solid";
-            } else if (renderLayer == net.minecraft.client.render.RenderLayer.getCutout()) {
-                return "cutout";
-            } else if (renderLayer == net.minecraft.client.render.RenderLayer.getCutoutMipped()) {
-                return "cutout_mipped";
-            } else if (renderLayer == net.minecraft.client.render.RenderLayer.getTranslucent()) {
-                return "translucent";
-            }
-
-            return null;
-
-        } catch (Exception e) {
-            EuphoriaCompanion.LOGGER.error("Failed to get render layer for: {}", blockId, e);
-            return null;
+    private String getActualRenderLayer(String blockId, SymbolTable.Snapshot lookup) {
+        // IDs never interned cannot belong to a registered block
+        int symbol = lookup.find(blockId);
+        int rawId = symbol == SymbolTable.NONE ? -1 : registry.rawId(symbol);
+        if (rawId < 0) {
+            return null; // Block doesn't exist in registry
         }
+
+        return registry.renderLayer(rawId);
     }
 
     /**
      * Calculates total number of blocks registered in the game
      */
     private int calculateTotalBlocksInGame() {
-        return Registries.BLOCK.size();
+        return registry.size();
     }
 
     /**
-     * Calculates total number of unique blocks covered by shader definitions
-     * Only counts blocks that are actually used (from direct definitions or tags assigned to properties)
+     * Calculates number of blocks covered by the shader, including directly defined blocks that are not registered
      */
-    private int calculateTotalBlocksInShader(Map<String, Integer> blockToProperty, Map<String, Set<String>> tagToBlocks, Map<String, Integer> tagToProperty) {
-        Set<String> coveredBlocks = new HashSet<>();
-
-        // Add blocks from direct definitions (extract base block IDs from blockstate strings)
-        for (String fullId : blockToProperty.keySet()) {
-            BlockStateValidator.BlockStateSpec spec = BlockStateValidator.parseBlockState(fullId);
-            if (spec != null) {
-                // Has blockstates - add just the block ID
-                coveredBlocks.add(spec.blockId());
-            } else {
-                // No blockstates - add as is
-                coveredBlocks.add(fullId);
-            }
-        }
-
-        // Only add blocks from tags that are actually assigned to a block.XX property
-        for (Map.Entry<String, Integer> entry : tagToProperty.entrySet()) {
-            String tagIdentifier = entry.getKey();
-            if (tagToBlocks.containsKey(tagIdentifier)) {
-                coveredBlocks.addAll(tagToBlocks.get(tagIdentifier));
+    private int calculateTotalBlocksInShader(IntSet directlyDefinedBlocks, BitSet coveredBlocks) {
+        int unregistered = 0;
+        for (IntIterator iterator = directlyDefinedBlocks.iterator(); iterator.hasNext(); ) {
+            if (registry.rawId(iterator.nextInt()) < 0) {
+                unregistered++;
             }
         }
+        return coveredBlocks.cardinality() + unregistered;
+    }
 
-        return coveredBlocks.size();
+    /**
+     * Parsed members of a pack's properties family; items and entities are null if the pack does not have the file
+     *
+     * @param dimensionBlocks per-dimension block.properties overrides, keyed by world folder (e.g. "world-1")
+     * @param targets         block.properties under each configured target environment, keyed by target
+     */
+    private record PackProperties(BlockPropertiesResult blocks, BlockPropertiesResult items, BlockPropertiesResult entities,
+                                  Map<String, BlockPropertiesResult> dimensionBlocks,
+                                  Map<String, BlockPropertiesResult> targets) {
     }
 
     /**
-     * Validates that a file is a valid ZIP archive
+     * Reads and parses one file of a pack
      */
-    private boolean isValidZipFile(Path path) {
-        try {
-            // Try to open as ZIP and immediately close
-            try (FileSystem ignored = FileSystems.newFileSystem(path, (ClassLoader) null)) {
-                return true;
-            }
-        } catch (Exception e) {
-            return false;
-        }
+    @FunctionalInterface
+    private interface PropertiesSource<T> {
+        T parse() throws IOException;
     }
 
     /**
@@ -575,4 +660,10 @@ public record ShaderAnalyzer(ModConfig config, int currentMCVersion) {
      */
     public record RenderLayerMismatch(String expected, String actual) {
     }
+
+    /**
+     * Property ID a block is assigned to in the current and in a target environment (null = not assigned)
+     */
+    public record AssignmentDifference(Integer current, Integer target) {
+    }
 }
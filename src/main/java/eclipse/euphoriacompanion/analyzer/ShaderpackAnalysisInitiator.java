@@ -2,6 +2,8 @@ package eclipse.euphoriacompanion.analyzer;
 
 import eclipse.euphoriacompanion.EuphoriaCompanion;
 import eclipse.euphoriacompanion.config.ModConfig;
+import eclipse.euphoriacompanion.parser.ParseCache;
+import eclipse.euphoriacompanion.parser.SymbolTable;
 import eclipse.euphoriacompanion.report.AnalysisReport;
 import eclipse.euphoriacompanion.report.ReportGenerator;
 import eclipse.euphoriacompanion.util.MinecraftVersionUtil;
@@ -18,6 +20,12 @@ import java.util.concurrent.atomic.AtomicBoolean;
  */
 public class ShaderpackAnalysisInitiator {
     private static final AtomicBoolean isProcessing = new AtomicBoolean(false);
+    private static final String PARSE_CACHE_FILE = "euphoriacompanion/parse-cache.bin";
+    private static final String REGISTRY_SNAPSHOT_FILE = "euphoriacompanion/registry-snapshot.bin";
+
+    // Parsed block.properties of earlier runs, so unchanged packs are not parsed again
+    private static final ParseCache parseCache = new ParseCache();
+    private static boolean parseCacheLoaded = false;
 
     /**
      * Processes all shaderpacks in the shaderpacks directory
@@ -63,8 +71,26 @@ public class ShaderpackAnalysisInitiator {
                 shaderpackPaths.size(),
                 getShaderpackNames(shaderpackPaths));
 
+            // Restore the persisted parse cache once per game session
+            Path parseCachePath = gameDir.resolve(PARSE_CACHE_FILE);
+            if (config.persistParseCache && !parseCacheLoaded) {
+                parseCache.load(parseCachePath);
+                parseCacheLoaded = true;
+            }
+
+            // Capture the block registry once on the client thread, every pack is analyzed off-thread against the same
+            // snapshot. A snapshot persisted by an earlier session with the same mods is loaded instead of walking the registry.
+            // Block IDs of this run are interned into a table that is dropped with the run
+            SymbolTable symbols = new SymbolTable();
+            long captureStart = System.nanoTime();
+            BlockRegistrySnapshot registry = config.persistRegistrySnapshot
+                ? BlockRegistrySnapshot.loadOrCapture(gameDir.resolve(REGISTRY_SNAPSHOT_FILE), symbols)
+                : ClientThreadCapture.capture(symbols);
+            EuphoriaCompanion.LOGGER.info("Prepared registry snapshot of {} blocks with {} states in {} ms",
+                registry.size(), registry.stateCount(), (System.nanoTime() - captureStart) / 1_000_000);
+
             // Create analyzer
-            ShaderAnalyzer analyzer = new ShaderAnalyzer(config, mcVersion);
+            ShaderAnalyzer analyzer = new ShaderAnalyzer(config, mcVersion, symbols, parseCache, registry);
 
             // Create output directory (idempotent - safe to call even if exists)
             Path logsDir = gameDir.resolve("logs/euphoriacompanion");
@@ -101,11 +127,15 @@ public class ShaderpackAnalysisInitiator {
                 }
             }
 
+            if (config.persistParseCache) {
+                parseCache.save(parseCachePath);
+            }
+
             // Generate entity list if enabled
             if (config.generateEntityList) {
                 try {
                     Path entityListPath = logsDir.resolve("entity_list.txt");
-                    eclipse.euphoriacompanion.report.EntityListGenerator.generateEntityList(entityListPath);
+                    eclipse.euphoriacompanion.report.EntityListGenerator.generateEntityList(registry.entityTypes(), entityListPath);
                     EuphoriaCompanion.LOGGER.info("Entity list saved to logs/euphoriacompanion/entity_list.txt");
                 } catch (IOException e) {
                     EuphoriaCompanion.LOGGER.error("Failed to generate entity list", e);
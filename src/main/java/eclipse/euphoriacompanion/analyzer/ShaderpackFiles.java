@@ -0,0 +1,165 @@
+package eclipse.euphoriacompanion.analyzer;
+
+import eclipse.euphoriacompanion.EuphoriaCompanion;
+import eclipse.euphoriacompanion.parser.BlockPropertiesParser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Read access to the files of a shaderpack, either an unpacked directory or a ZIP. A ZIP is opened once as a
+ * {@link ZipFile}: reading its central directory validates the archive and indexes the entries, so lookups are
+ * cheap and nothing is extracted to disk. Files may be read concurrently.
+ * ZIPs that wrap the pack in a folder (PackName/shaders/block.properties) are read from that folder.
+ */
+final class ShaderpackFiles implements Closeable {
+    static final String SHADERS_DIR = "shaders/";
+    private static final String BLOCK_PROPERTIES = SHADERS_DIR + "block.properties";
+    private static final String NESTED_BLOCK_PROPERTIES = "/" + BLOCK_PROPERTIES;
+    private static final String WORLD_PREFIX = SHADERS_DIR + "world";
+
+    private final Path directory;  // Unpacked pack, null for ZIPs
+    private final ZipFile zip;     // ZIP pack, null for directories
+    private final String root;     // Entry name prefix of the pack root inside the ZIP ("" or e.g. "PackName/")
+
+    private ShaderpackFiles(Path directory, ZipFile zip, String root) {
+        this.directory = directory;
+        this.zip = zip;
+        this.root = root;
+    }
+
+    /**
+     * Opens an unpacked pack or a ZIP. Throws {@link java.util.zip.ZipException} if the file is not a valid ZIP.
+     */
+    static ShaderpackFiles open(Path shaderpackPath) throws IOException {
+        if (Files.isDirectory(shaderpackPath)) {
+            return new ShaderpackFiles(shaderpackPath, null, "");
+        }
+
+        ZipFile zip = new ZipFile(shaderpackPath.toFile());
+        try {
+            String root = findRoot(zip);
+            if (!root.isEmpty()) {
+                EuphoriaCompanion.LOGGER.info("Found shaders/ nested in {} inside {}", root, shaderpackPath.getFileName());
+            }
+            return new ShaderpackFiles(null, zip, root);
+        } catch (RuntimeException e) {
+            zip.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Finds the pack root of a ZIP: the top level if it has shaders/block.properties, otherwise the first folder
+     * one level down that has it. Only the central directory is scanned, nothing is inflated.
+     */
+    private static String findRoot(ZipFile zip) {
+        if (zip.getEntry(BLOCK_PROPERTIES) != null) {
+            return "";
+        }
+
+        for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements(); ) {
+            String name = entries.nextElement().getName();
+            int rootLength = name.length() - BLOCK_PROPERTIES.length();
+            if (name.endsWith(NESTED_BLOCK_PROPERTIES) && name.indexOf('/') == rootLength - 1) {
+                return name.substring(0, rootLength);
+            }
+        }
+        return "";
+    }
+
+    boolean isZip() {
+        return zip != null;
+    }
+
+    /**
+     * Checks if the pack has a regular file at the given path (e.g. "shaders/block.properties")
+     */
+    boolean exists(String name) {
+        if (zip == null) {
+            return Files.isRegularFile(directory.resolve(name));
+        }
+        ZipEntry entry = zip.getEntry(root + name);
+        return entry != null && !entry.isDirectory();
+    }
+
+    /**
+     * File system path of a file of an unpacked pack
+     */
+    Path path(String name) {
+        if (zip != null) {
+            throw new IllegalStateException("ZIP entries have no file system path: " + name);
+        }
+        return directory.resolve(name);
+    }
+
+    /**
+     * Reads a file for a single parse: files of unpacked packs are memory-mapped when large enough, ZIP entries are
+     * inflated straight into a buffer sized from their uncompressed size
+     */
+    ByteBuffer read(String name) throws IOException {
+        if (zip == null) {
+            return BlockPropertiesParser.readMapped(directory.resolve(name));
+        }
+
+        ZipEntry entry = zip.getEntry(root + name);
+        if (entry == null) {
+            throw new IOException("No entry " + name + " in " + zip.getName());
+        }
+        try (InputStream in = zip.getInputStream(entry)) {
+            return BlockPropertiesParser.readFully(in, entry.getSize());
+        }
+    }
+
+    /**
+     * Paths of the per-dimension block.properties overrides (shaders/world-1/block.properties, ...), keyed by
+     * world folder name in sorted order
+     */
+    Map<String, String> dimensionBlockProperties() throws IOException {
+        Map<String, String> files = new TreeMap<>();
+
+        if (zip == null) {
+            Path shadersDir = directory.resolve(SHADERS_DIR);
+            if (Files.isDirectory(shadersDir)) {
+                try (var worlds = Files.newDirectoryStream(shadersDir, "world*")) {
+                    for (Path world : worlds) {
+                        String name = SHADERS_DIR + world.getFileName() + "/block.properties";
+                        if (exists(name)) {
+                            files.put(world.getFileName().toString(), name);
+                        }
+                    }
+                }
+            }
+            return files;
+        }
+
+        // One pass over the central directory, nothing is inflated
+        String worldPrefix = root + WORLD_PREFIX;
+        for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements(); ) {
+            String name = entries.nextElement().getName();
+            if (name.startsWith(worldPrefix) && name.endsWith("/block.properties")) {
+                String world = name.substring(root.length() + SHADERS_DIR.length(), name.length() - "/block.properties".length());
+                if (!world.contains("/")) {
+                    files.put(world, name.substring(root.length()));
+                }
+            }
+        }
+        return files;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (zip != null) {
+            zip.close();
+        }
+    }
+}
@@ -27,6 +27,10 @@ public class ModConfig {
     public boolean checkFull = true;
     public boolean checkBlockEntity = true;
     public boolean generateEntityList = true;
+    public boolean persistParseCache = false;
+    public boolean persistRegistrySnapshot = false;
+    public boolean streamMissingBlocks = false;
+    public String targetEnvironments = "";
 
     // Cached detection results
     private Boolean cachedIrisSupport = null;
@@ -155,6 +159,10 @@ public class ModConfig {
         checkFull = Boolean.parseBoolean(props.getProperty("checkFull", "true"));
         checkBlockEntity = Boolean.parseBoolean(props.getProperty("checkBlockEntity", "true"));
         generateEntityList = Boolean.parseBoolean(props.getProperty("generateEntityList", "false"));
+        persistParseCache = Boolean.parseBoolean(props.getProperty("persistParseCache", "false"));
+        persistRegistrySnapshot = Boolean.parseBoolean(props.getProperty("persistRegistrySnapshot", "false"));
+        streamMissingBlocks = Boolean.parseBoolean(props.getProperty("streamMissingBlocks", "false"));
+        targetEnvironments = props.getProperty("targetEnvironments", "");
     }
 
     /**
@@ -191,6 +199,23 @@ public class ModConfig {
                 writer.write("# When enabled, generates a separate entity_list.txt file with all entities sorted by mod\n");
                 props.setProperty("generateEntityList", String.valueOf(generateEntityList));
 
+                writer.write("\n# Keep parsed block.properties between game sessions\n");
+                writer.write("# When enabled, parse results are stored in euphoriacompanion/parse-cache.bin so unchanged packs are not parsed again\n");
+                props.setProperty("persistParseCache", String.valueOf(persistParseCache));
+
+                writer.write("\n# Keep the captured block registry between game sessions\n");
+                writer.write("# When enabled, block and state data is stored in euphoriacompanion/registry-snapshot.bin and reused while the installed mods stay the same (tags and render layers are still read every run)\n");
+                props.setProperty("persistRegistrySnapshot", String.valueOf(persistRegistrySnapshot));
+
+                writer.write("\n# Write missing blocks without holding them in memory, for very large modpacks\n");
+                writer.write("# When enabled, only per-mod counts are kept and blocks are listed in registry order instead of alphabetically\n");
+                props.setProperty("streamMissingBlocks", String.valueOf(streamMissingBlocks));
+
+                writer.write("\n# Other environments to check block.properties against, comma separated (empty = none)\n");
+                writer.write("# Each entry is a Minecraft version, optionally followed by /iris or /oculus and for Oculus its version (e.g. 1.20.1/iris, 1.19.2/oculus/1.7.0, 1.21.1)\n");
+                writer.write("# The file is parsed once for all of them, and the report lists the assignments that differ from the current environment\n");
+                props.setProperty("targetEnvironments", targetEnvironments);
+
                 // Write properties without the default timestamp comment
                 props.store(writer, null);
 
@@ -1,6 +1,7 @@
 package eclipse.euphoriacompanion.mixin;
 
 import eclipse.euphoriacompanion.EuphoriaCompanion;
+import eclipse.euphoriacompanion.analyzer.ClientThreadCapture;
 import net.minecraft.client.MinecraftClient;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Shadow;
@@ -17,6 +18,9 @@ public class MinecraftClientMixin {
     private void onTick(CallbackInfo ci) {
         MinecraftClient client = (MinecraftClient) (Object) this;
 
+        // Advance a registry capture requested by the analysis thread, also while paused or in menus
+        ClientThreadCapture.tick();
+
         // Only process when the game is active
         if (client.player != null && client.currentScreen == null && !paused && EuphoriaCompanion.ANALYZE_KEY != null) {
             // Check if our key was pressed
@@ -0,0 +1,132 @@
+package eclipse.euphoriacompanion.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A direct block assignment with its blockstate string parsed once, so later phases never split it again:
+ * the block ID as written, its base block ID, the property/value pairs and the block.XX property ID.
+ * Blockstate format: "modName:blockName:prop1=val1:prop2=val2..." or "blockName:prop1=val1..." (vanilla).
+ */
+public final class BlockEntry {
+    private static final String[] NONE = new String[0];
+
+    private final int symbol;
+    private final int baseSymbol;
+    private final String[] propertyNames;   // In order of first appearance, a repeated property keeps its last value
+    private final String[] propertyValues;
+    private final int propertyId;
+
+    private BlockEntry(int symbol, int baseSymbol, String[] propertyNames, String[] propertyValues, int propertyId) {
+        this.symbol = symbol;
+        this.baseSymbol = baseSymbol;
+        this.propertyNames = propertyNames;
+        this.propertyValues = propertyValues;
+        this.propertyId = propertyId;
+    }
+
+    /**
+     * Parses the block ID of a symbol, interning the base block ID of blockstate strings into the same table
+     */
+    static BlockEntry parse(int symbol, int propertyId, SymbolTable symbols) {
+        String fullBlockId = symbols.name(symbol);
+        List<String> segments = segments(fullBlockId);
+        if (segments.size() < 2) {
+            return new BlockEntry(symbol, symbol, NONE, NONE, propertyId); // Just a block ID, no blockstates
+        }
+
+        // Check if second segment contains '=' to determine if first segment is namespace or blockname
+        String blockId;
+        int propertyStartIndex;
+        if (segments.get(1).indexOf('=') >= 0) {
+            // Format: "blockName:prop1=val1..."
+            blockId = "minecraft:" + segments.get(0);
+            propertyStartIndex = 1;
+        } else {
+            // Format: "namespace:blockName:prop1=val1..."
+            blockId = segments.get(0) + ":" + segments.get(1);
+            propertyStartIndex = 2;
+        }
+
+        List<String> names = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        for (int i = propertyStartIndex; i < segments.size(); i++) {
+            String propertyDef = segments.get(i);
+            int equals = propertyDef.indexOf('=');
+            if (equals < 0) {
+                continue;
+            }
+            String name = propertyDef.substring(0, equals);
+            String value = propertyDef.substring(equals + 1);
+            int existing = names.indexOf(name);
+            if (existing >= 0) {
+                values.set(existing, value);
+            } else {
+                names.add(name);
+                values.add(value);
+            }
+        }
+
+        if (names.isEmpty()) {
+            return new BlockEntry(symbol, symbol, NONE, NONE, propertyId); // No blockstate properties defined
+        }
+        return new BlockEntry(symbol, symbols.intern(blockId), names.toArray(NONE), values.toArray(NONE), propertyId);
+    }
+
+    /**
+     * Splits at ':' like {@code String.split(":")}, dropping trailing empty segments
+     */
+    private static List<String> segments(String fullBlockId) {
+        List<String> segments = new ArrayList<>(4);
+        int start = 0;
+        int colon;
+        while ((colon = fullBlockId.indexOf(':', start)) >= 0) {
+            segments.add(fullBlockId.substring(start, colon));
+            start = colon + 1;
+        }
+        segments.add(fullBlockId.substring(start));
+
+        int size = segments.size();
+        while (size > 1 && segments.get(size - 1).isEmpty()) {
+            segments.remove(--size);
+        }
+        return segments;
+    }
+
+    /**
+     * Symbol of the block ID as written (e.g. "minecraft:furnace:lit=true")
+     */
+    public int symbol() {
+        return symbol;
+    }
+
+    /**
+     * Symbol of the block ID without blockstates (e.g. "minecraft:furnace"), the symbol itself if it has none
+     */
+    public int baseSymbol() {
+        return baseSymbol;
+    }
+
+    public boolean hasBlockState() {
+        return propertyNames.length > 0;
+    }
+
+    public int propertyCount() {
+        return propertyNames.length;
+    }
+
+    public String propertyName(int index) {
+        return propertyNames[index];
+    }
+
+    public String propertyValue(int index) {
+        return propertyValues[index];
+    }
+
+    /**
+     * The block.XX property ID the block is assigned to
+     */
+    public int propertyId() {
+        return propertyId;
+    }
+}
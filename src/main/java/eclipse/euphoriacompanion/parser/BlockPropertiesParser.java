@@ -2,362 +2,539 @@ package eclipse.euphoriacompanion.parser;
 
 import eclipse.euphoriacompanion.EuphoriaCompanion;
 import eclipse.euphoriacompanion.config.ModConfig;
-import net.fabricmc.loader.api.FabricLoader;
 
-import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Parses block.properties files with support for conditional directives,
- * tag definitions, and property assignments.
+ * tag definitions, and property assignments. item.properties and entity.properties go through the same
+ * preprocessor, see {@link PropertiesFile}.
  */
 public class BlockPropertiesParser {
-    private static final Pattern IF_PATTERN = Pattern.compile("#if\\s+(\\w+)\\s*([!=<>]+)\\s*(\\d+)");
-    private static final Pattern DEFINE_PATTERN = Pattern.compile("#define\\s+(\\w+)\\s+(.+)");
-
-    // Parsed data
-    private final Map<String, Integer> blockToProperty = new HashMap<>();
-    private final Map<String, String> blockToRenderLayer = new HashMap<>();
-    private final Map<String, String> tagDefinitions = new LinkedHashMap<>();  // Preserve insertion order for first-assignment-wins
-    private final Map<String, Integer> tagToProperty = new LinkedHashMap<>();  // Preserve insertion order for first-assignment-wins
-    private final Map<String, List<Integer>> duplicateBlocks = new HashMap<>();
+    private static final byte[] LAYER_PREFIX = BlockPropertiesTokenizer.ascii("layer.");
+    private static final byte[] MINECRAFT_NAMESPACE = BlockPropertiesTokenizer.ascii("minecraft:");
+    private static final byte[] EUPHORIA_PATCHES_IRIS = BlockPropertiesTokenizer.ascii("EUPHORIA_PATCHES_IRIS");
+    private static final byte[] EUPHORIA_PATCHES_OCULUS = BlockPropertiesTokenizer.ascii("EUPHORIA_PATCHES_OCULUS");
+    private static final int DEFINE_LENGTH = "#define".length();
+    private static final long MEMORY_MAP_THRESHOLD = 64 * 1024;  // Below this, mapping costs more than reading
+    private static final int MAX_INITIAL_READ_BUFFER = 16 * 1024 * 1024;  // Cap on trusting a stream's announced size
+    private static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8;     // Largest array most VMs can allocate
+    private static final int PARALLEL_THRESHOLD = 1024 * 1024;   // Below this, splitting costs more than it saves
+    private static final int MIN_CHUNK_BYTES = 256 * 1024;
+    // Shared by all parsers for the life of the game, so each distinct #if is compiled once across runs and packs;
+    // beyond 4096 distinct expressions new ones are compiled on every use instead of cached
+    private static final ConditionCache CONDITIONS = new ConditionCache();
+
+    // Parsed data, one result per preprocessor environment (bit i of a live mask = results[i])
+    private final BlockPropertiesResult[] results;
+    private int[] tagIdentifierHashes = new int[0];  // Sorted hashes of tag identifiers defined in any result, for allocation-free lookups
     private final ModConfig config;
-    private final int currentMCVersion;
-    private boolean irisLoaded = false;
-    private final boolean oculusLoaded;
-    private final int oculusVersion;
-    private final int irisTagSupport;
+    private final SymbolTable symbols;
+    private final PreprocessorEnvironment[] environments;
+    private final long allEnvironments;
+    private final long irisMask;    // Environments where EUPHORIA_PATCHES_IRIS is defined
+    private final long oculusMask;  // Environments where EUPHORIA_PATCHES_OCULUS is defined
+    private final boolean tagSupportEnabled;
+    private final PropertiesFile file;
 
     public BlockPropertiesParser(ModConfig config, int currentMCVersion) {
+        this(config, List.of(PreprocessorEnvironment.detect(config, currentMCVersion)), new SymbolTable());
+    }
+
+    /**
+     * Creates a parser that evaluates the file against several environments (e.g. MC versions or
+     * Iris/Oculus setups) in a single pass. Each line is tokenized once and applied to every
+     * environment in which it is live; results are available through {@link #getResults()}.
+     */
+    public BlockPropertiesParser(ModConfig config, List<PreprocessorEnvironment> environments) {
+        this(config, environments, new SymbolTable());
+    }
+
+    /**
+     * Creates a parser that interns block IDs into the given (run-scoped) symbol table
+     */
+    public BlockPropertiesParser(ModConfig config, List<PreprocessorEnvironment> environments, SymbolTable symbols) {
+        this(config, environments, symbols, PropertiesFile.BLOCK);
+    }
+
+    /**
+     * Creates a parser for another member of the properties family (item.XX=... or entity.XX=... assignments)
+     */
+    public BlockPropertiesParser(ModConfig config, List<PreprocessorEnvironment> environments, SymbolTable symbols,
+                                 PropertiesFile file) {
+        this(config, createResults(environments, symbols), symbols, file);
+    }
+
+    /**
+     * Creates a parser that fills an existing (single environment) result
+     */
+    BlockPropertiesParser(ModConfig config, BlockPropertiesResult result) {
+        this(config, new BlockPropertiesResult[]{result}, result.getSymbols(), PropertiesFile.BLOCK);
+    }
+
+    private BlockPropertiesParser(ModConfig config, BlockPropertiesResult[] results, SymbolTable symbols, PropertiesFile file) {
         this.config = config;
-        this.currentMCVersion = currentMCVersion;
-        boolean euphoriaPatchesEnabled = config.detectEuphoriaPatchesSupport();
+        this.file = file;
+        this.symbols = symbols;
+        this.results = results;
+        this.environments = new PreprocessorEnvironment[results.length];
+        this.allEnvironments = results.length == Long.SIZE ? -1L : (1L << results.length) - 1;
+        this.tagSupportEnabled = config.isTagSupportEnabled();
+
+        long iris = 0;
+        long oculus = 0;
+        for (int i = 0; i < results.length; i++) {
+            environments[i] = results[i].getEnvironment();
+            if (this.environments[i].irisLoaded()) {
+                iris |= 1L << i;
+            }
+            if (this.environments[i].oculusLoaded()) {
+                oculus |= 1L << i;
+            }
+        }
+        this.irisMask = iris;
+        this.oculusMask = oculus;
+    }
+
+    private static BlockPropertiesResult[] createResults(List<PreprocessorEnvironment> environments, SymbolTable symbols) {
+        if (environments.isEmpty() || environments.size() > Long.SIZE) {
+            throw new IllegalArgumentException("Expected 1 to " + Long.SIZE + " environments, got " + environments.size());
+        }
+
+        BlockPropertiesResult[] results = new BlockPropertiesResult[environments.size()];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = new BlockPropertiesResult(environments.get(i), symbols);
+        }
+        return results;
+    }
 
-        // IRIS_TAG_SUPPORT variable (0 = disabled, 2 = enabled for Iris 1.8+)
-        this.irisTagSupport = config.isTagSupportEnabled() ? 2 : 0;
+    /**
+     * Parses a block.properties file
+     */
+    public void parse(Path propertiesFile) throws IOException {
+        parse(ByteBuffer.wrap(Files.readAllBytes(propertiesFile)));
+    }
 
-        // Euphoria Companion defines (only available with Euphoria Patches 1.7.8+)
-        if (euphoriaPatchesEnabled) {
-            this.oculusLoaded = FabricLoader.getInstance().isModLoaded("oculus");
-            if (!oculusLoaded) {
-                this.irisLoaded = FabricLoader.getInstance().isModLoaded("iris");
+    /**
+     * Reads a properties file into a buffer, memory-mapping it when it is large enough for that to pay off.
+     * Only use this for content that is parsed right away and not kept: the mapping follows later edits of the
+     * file, and some platforms refuse to delete or truncate a file while a mapping is alive (it is released once
+     * the buffer is collected).
+     */
+    public static ByteBuffer readMapped(Path propertiesFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(propertiesFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < MEMORY_MAP_THRESHOLD || size > Integer.MAX_VALUE) {
+                return ByteBuffer.wrap(Files.readAllBytes(propertiesFile));
             }
-            this.oculusVersion = getOculusVersionInt();
-            EuphoriaCompanion.LOGGER.info("Euphoria Companion defines: EUPHORIA_PATCHES_IRIS={}, EUPHORIA_PATCHES_OCULUS={}, EUPHORIA_PATCHES_OCULUS_VERSION={}",
-                irisLoaded, oculusLoaded, oculusVersion);
-        } else {
-            this.irisLoaded = false;
-            this.oculusLoaded = false;
-            this.oculusVersion = 0;
-            EuphoriaCompanion.LOGGER.info("Euphoria Patches not detected, Euphoria Companion defines disabled");
+
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    /**
+     * Reads a stream into a buffer sized from the expected size, growing it only if the stream turns out to be
+     * longer than announced. The expected size only sizes the first allocation up to a limit, so a corrupt size
+     * field cannot allocate gigabytes before any data is read. An expected size of -1 (unknown) falls back to
+     * {@link InputStream#readAllBytes()}.
+     */
+    public static ByteBuffer readFully(InputStream in, long expectedSize) throws IOException {
+        if (expectedSize < 0) {
+            return ByteBuffer.wrap(in.readAllBytes());
         }
 
-        EuphoriaCompanion.LOGGER.info("IRIS_TAG_SUPPORT = {}", irisTagSupport);
+        byte[] content = new byte[(int) Math.min(expectedSize, MAX_INITIAL_READ_BUFFER)];
+        int length = 0;
+        while (true) {
+            length += in.readNBytes(content, length, content.length - length);
+            if (length < content.length) {
+                return ByteBuffer.wrap(content, 0, length);
+            }
+
+            int next = in.read();
+            if (next < 0) {
+                return ByteBuffer.wrap(content);
+            }
+
+            // Longer than announced (e.g. a zip with a wrong size field, or one above the initial limit)
+            if (content.length >= MAX_BUFFER_SIZE) {
+                throw new IOException("Content is larger than " + MAX_BUFFER_SIZE + " bytes");
+            }
+            content = Arrays.copyOf(content, (int) Math.min(Math.max(content.length * 2L, 8192), MAX_BUFFER_SIZE));
+            content[length++] = (byte) next;
+        }
     }
 
     /**
-     * Gets Oculus version as integer (for EUPHORIA_PATCHES_OCULUS_VERSION define)
-     * Returns version in format: major*10000 + minor*100 + patch
-     * e.g., 1.7.0 -> 10700
+     * Parses block.properties content from a buffer (from its position to its limit)
      */
-    private int getOculusVersionInt() {
-        return FabricLoader.getInstance().getModContainer("oculus")
-            .map(modContainer -> {
-                String version = modContainer.getMetadata().getVersion().getFriendlyString();
-
-                // Parse version string (e.g., "1.7.0", "1.7.0+mc1.21")
-                try {
-                    String[] parts = version.split("[.+]");
-                    if (parts.length >= 3) {
-                        int major = Integer.parseInt(parts[0]);
-                        int minor = Integer.parseInt(parts[1]);
-                        int patch = Integer.parseInt(parts[2]);
-
-                        return major * 10000 + minor * 100 + patch;
+    public void parse(ByteBuffer buffer) {
+        parseRange(buffer, buffer.position(), buffer.limit(), 0);
+        logSummary();
+    }
+
+    /**
+     * Parses block.properties content on several threads. The file is cut into chunks at top-level lines (outside
+     * any #if block) after the last #define, so every chunk starts with an empty conditional stack and sees all
+     * tag definitions. The part up to the last #define is parsed first, the remaining chunks in parallel, and
+     * their results are merged in file order. Small files, or files without such cut points, are parsed sequentially.
+     */
+    public void parseParallel(ByteBuffer buffer) {
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        if (buffer.remaining() < PARALLEL_THRESHOLD || parallelism < 2) {
+            parse(buffer);
+            return;
+        }
+
+        int targetChunkBytes = Math.max(MIN_CHUNK_BYTES, buffer.remaining() / (parallelism * 4));
+        List<Chunk> chunks = findChunks(buffer, targetChunkBytes);
+        if (chunks.size() < 2) {
+            parse(buffer);
+            return;
+        }
+
+        // The first chunk holds every #define, the others start from its tag definitions
+        Chunk header = chunks.get(0);
+        parseRange(buffer, header.start(), header.end(), header.linesBefore());
+        List<BlockPropertiesParser> parsers = new ArrayList<>(chunks.size() - 1);
+        for (int i = 1; i < chunks.size(); i++) {
+            parsers.add(forChunk());
+        }
+
+        ForkJoinPool.commonPool().invoke(new ParseChunks(buffer, chunks, parsers, 0, parsers.size()));
+
+        for (BlockPropertiesParser chunkParser : parsers) {
+            int[] symbolMap = symbols.internAll(chunkParser.symbols);
+            for (int i = 0; i < results.length; i++) {
+                results[i].mergeFrom(chunkParser.results[i], symbolMap);
+            }
+        }
+
+        EuphoriaCompanion.LOGGER.debug("Parsed block.properties in {} chunks", chunks.size());
+        logSummary();
+    }
+
+    /**
+     * Parses the logical lines between two line boundaries of the buffer
+     */
+    private void parseRange(ByteBuffer buffer, int start, int end, int linesBefore) {
+        ByteBuffer range = buffer.duplicate();
+        range.limit(end);
+        BlockPropertiesTokenizer tokens = new BlockPropertiesTokenizer(range, start, linesBefore);
+        ConditionalStack conditionalStack = newConditionalStack();
+
+        while (tokens.nextLine()) {
+            processLine(tokens, conditionalStack);
+        }
+
+        warnUnmatched(conditionalStack);
+    }
+
+    private void logSummary() {
+        for (BlockPropertiesResult result : results) {
+            EuphoriaCompanion.LOGGER.info("Parsed {} direct {} assignments and {} tag definitions",
+                result.getBlockSymbols().size(), file.noun(), result.getTagDefinitions().size());
+        }
+    }
+
+    /**
+     * Cuts the buffer at top-level line boundaries into chunks of about the target size.
+     * The first chunk extends to the first top-level boundary after the last #define.
+     */
+    private List<Chunk> findChunks(ByteBuffer buffer, int targetChunkBytes) {
+        BlockPropertiesTokenizer tokens = new BlockPropertiesTokenizer(buffer);
+        List<Chunk> chunks = new ArrayList<>();
+        int chunkStart = tokens.position();
+        int chunkLinesBefore = 0;
+        int depth = 0;
+        boolean afterDefine = false;
+
+        while (tokens.nextLine()) {
+            switch (tokens.type()) {
+                case IF, IFDEF, IFNDEF -> depth++;
+                case ENDIF -> depth = Math.max(depth - 1, 0);
+                case DEFINE -> {
+                    if (tagSupportEnabled) {
+                        // Everything up to here must be parsed before any chunk that could use this tag
+                        chunks.clear();
+                        chunkStart = buffer.position();
+                        chunkLinesBefore = 0;
+                        afterDefine = true;
                     }
-                } catch (NumberFormatException e) {
-                    EuphoriaCompanion.LOGGER.warn("Failed to parse Oculus version: {}", version);
                 }
+                default -> {
+                }
+            }
+
+            int position = tokens.position();
+            if (depth == 0 && (afterDefine || position - chunkStart >= targetChunkBytes)) {
+                chunks.add(new Chunk(chunkStart, position, chunkLinesBefore));
+                chunkStart = position;
+                chunkLinesBefore = tokens.lineNumber();
+                afterDefine = false;
+            }
+        }
 
-                return 0;
-            })
-            .orElse(0);
+        if (chunkStart < buffer.limit()) {
+            chunks.add(new Chunk(chunkStart, buffer.limit(), chunkLinesBefore));
+        }
+        return chunks;
     }
 
     /**
-     * Parses a block.properties file
+     * Parser for one chunk of a parallel parse: same environments and tag definitions, but its own symbol table
+     * so chunks do not contend on interning (symbols are translated when merging)
      */
-    public void parse(Path propertiesFile) throws IOException {
-        Deque<ConditionalContext> conditionalStack = new ArrayDeque<>();
-
-        try (BufferedReader reader = Files.newBufferedReader(propertiesFile)) {
-            String line;
-            int lineNumber = 0;
-
-            try {
-
-            while ((line = reader.readLine()) != null) {
-                lineNumber++;
-                line = line.trim();
-
-                // Handle line continuation (backslash at end)
-                if (line.endsWith("\\")) {
-                    StringBuilder continuedLine = new StringBuilder();
-
-                    // Keep reading and concatenating lines until we find one without trailing backslash
-                    while (line.endsWith("\\")) {
-                        // Remove the trailing backslash
-                        String withoutBackslash = line.substring(0, line.length() - 1).trim();
-
-                        // Only append non-empty content (skip lines that are just "\")
-                        if (!withoutBackslash.isEmpty()) {
-                            if (!continuedLine.isEmpty()) {
-                                continuedLine.append(" ");
-                            }
-                            continuedLine.append(withoutBackslash);
-                        }
-
-                        // Read next line
-                        line = reader.readLine();
-                        if (line == null) {
-                            break; // End of file
-                        }
-                        lineNumber++;
-                        line = line.trim();
-                    }
+    private BlockPropertiesParser forChunk() {
+        SymbolTable chunkSymbols = new SymbolTable();
+        BlockPropertiesParser chunkParser = new BlockPropertiesParser(config,
+            createResults(Arrays.asList(environments), chunkSymbols), chunkSymbols, file);
+        for (int i = 0; i < results.length; i++) {
+            results[i].getTagDefinitions().forEach(chunkParser.results[i]::defineTag);
+        }
+        chunkParser.tagIdentifierHashes = tagIdentifierHashes;
+        return chunkParser;
+    }
 
-                    // Append the final line (without backslash)
-                    if (line != null && !line.isEmpty()) {
-                        if (!continuedLine.isEmpty()) {
-                            continuedLine.append(" ");
-                        }
-                        continuedLine.append(line);
-                    }
+    /**
+     * Byte range [start, end) of a parallel parse chunk and the number of physical lines before it
+     */
+    private record Chunk(int start, int end, int linesBefore) {
+    }
 
-                    // Use the merged line for processing
-                    line = continuedLine.toString();
-                    // Keep lineNumber at current position (end of continuation), not startLine
-                }
+    /**
+     * Parses chunks [from, to) by splitting the range until single chunks remain
+     */
+    private static final class ParseChunks extends RecursiveAction {
+        private final ByteBuffer buffer;
+        private final List<Chunk> chunks;
+        private final List<BlockPropertiesParser> parsers;  // parsers.get(i) parses chunks.get(i + 1)
+        private final int from;
+        private final int to;
+
+        ParseChunks(ByteBuffer buffer, List<Chunk> chunks, List<BlockPropertiesParser> parsers, int from, int to) {
+            this.buffer = buffer;
+            this.chunks = chunks;
+            this.parsers = parsers;
+            this.from = from;
+            this.to = to;
+        }
 
-                // Handle conditional directives (ALWAYS process these, even in inactive blocks)
-                if (line.startsWith("#ifdef ") || line.startsWith("#ifndef ")) {
-                    handleIfdefDirective(line, conditionalStack, lineNumber);
-                    continue;
-                } else if (line.startsWith("#if ")) {
-                    handleIfDirective(line, conditionalStack, lineNumber);
-                    continue;
-                } else if (line.startsWith("#else")) {
-                    handleElseDirective(conditionalStack, lineNumber);
-                    continue;
-                } else if (line.startsWith("#endif")) {
-                    handleEndifDirective(conditionalStack, lineNumber);
-                    continue;
-                }
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                Chunk chunk = chunks.get(from + 1);
+                parsers.get(from).parseRange(buffer, chunk.start(), chunk.end(), chunk.linesBefore());
+                return;
+            }
 
-                // Skip ALL other processing if inside an inactive conditional block
-                if (!isActiveContext(conditionalStack)) {
-                    continue;
-                }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ParseChunks(buffer, chunks, parsers, from, middle),
+                new ParseChunks(buffer, chunks, parsers, middle, to));
+        }
+    }
 
-                // Skip empty lines and comments
-                if (line.isEmpty() || (line.startsWith("#") && !line.startsWith("#define"))) {
-                    continue;
-                }
+    ConditionalStack newConditionalStack() {
+        return new ConditionalStack(allEnvironments);
+    }
 
-                // Handle #define statements (tag definitions)
-                if (line.startsWith("#define") && config.isTagSupportEnabled()) {
-                    handleDefineDirective(line, lineNumber);
-                    continue;
-                }
+    /**
+     * Applies the tokenizer's current logical line: directives update the stack, other lines update every result they are live in
+     */
+    void processLine(BlockPropertiesTokenizer tokens, ConditionalStack conditionalStack) {
+        int lineNumber = tokens.lineNumber();
+
+        // Handle conditional directives (ALWAYS process these, even in inactive blocks)
+        switch (tokens.type()) {
+            case IFDEF, IFNDEF -> {
+                handleIfdefDirective(tokens, conditionalStack, lineNumber);
+                return;
+            }
+            case IF -> {
+                handleIfDirective(tokens, conditionalStack, lineNumber);
+                return;
+            }
+            case ELIF -> {
+                handleElifDirective(tokens, conditionalStack, lineNumber);
+                return;
+            }
+            case ELSE -> {
+                handleElseDirective(conditionalStack, lineNumber);
+                return;
+            }
+            case ENDIF -> {
+                handleEndifDirective(conditionalStack, lineNumber);
+                return;
+            }
+            default -> {
+            }
+        }
 
-                // Handle property assignments
-                if (line.contains("=")) {
-                    handlePropertyAssignment(line, lineNumber);
+        // Skip ALL other processing if inside a conditional block that is inactive in every environment
+        long live = conditionalStack.liveMask();
+        if (live == 0) {
+            return;
+        }
+
+        switch (tokens.type()) {
+            // Handle #define statements (tag definitions)
+            case DEFINE -> {
+                if (tagSupportEnabled) {
+                    handleDefineDirective(tokens, live, lineNumber);
                 }
             }
-            } catch (IOException e) {
-                throw new IOException("Error reading block.properties at line " + lineNumber, e);
+            // Handle property assignments
+            case ASSIGNMENT -> handlePropertyAssignment(tokens, live, lineNumber);
+            // Skip empty lines and comments
+            default -> {
             }
         }
+    }
 
-        // Check for unmatched #if directives
+    /**
+     * Checks for unmatched #if directives at the end of the file
+     */
+    static void warnUnmatched(ConditionalStack conditionalStack) {
         if (!conditionalStack.isEmpty()) {
             EuphoriaCompanion.LOGGER.warn("Parsing ended with {} unmatched #if directive(s)", conditionalStack.size());
         }
+    }
 
-        EuphoriaCompanion.LOGGER.info("Parsed {} direct block assignments and {} tag definitions",
-            blockToProperty.size(), tagDefinitions.size());
+    /**
+     * Evaluates a compiled condition against every environment, returning the mask of environments where it holds
+     */
+    private long evaluate(Condition condition) {
+        long mask = 0;
+        for (int i = 0; i < environments.length; i++) {
+            if (condition.test(environments[i])) {
+                mask |= 1L << i;
+            }
+        }
+        return mask;
     }
 
     /**
      * Handles #if conditional directives
      */
-    private void handleIfDirective(String line, Deque<ConditionalContext> stack, int lineNumber) {
-        EuphoriaCompanion.LOGGER.debug("Line {}: #if [{}] (stack depth before: {})", lineNumber, line, stack.size());
-
-        // Extract the expression after "#if "
-        String expression = line.substring(4).trim();
+    private void handleIfDirective(BlockPropertiesTokenizer tokens, ConditionalStack stack, int lineNumber) {
+        EuphoriaCompanion.LOGGER.debug("Line {}: #if (stack depth before: {})", lineNumber, stack.size());
 
-        // Check if we're already in an inactive context
-        boolean parentActive = isActiveContext(stack);
+        // Environments in which the enclosing context is active
+        long parentActive = stack.liveMask();
 
-        // Try to evaluate the expression
-        Boolean result = evaluateExpression(expression);
+        // Look up (or compile) the expression after "#if "
+        ConditionCache.Entry condition = CONDITIONS.get(tokens, tokens.argumentStart(), tokens.argumentEnd());
 
-        if (result != null) {
+        if (condition.supported()) {
             // Successfully evaluated
-            boolean active = parentActive && result;
-            stack.push(new ConditionalContext(true, active));
+            long result = evaluate(condition.condition());
+            long active = parentActive & result;
+            stack.push(true, active, result);
             EuphoriaCompanion.LOGGER.debug("Line {}: #if evaluated to {} -> {} (stack depth after: {})",
                 lineNumber, result, active, stack.size());
         } else {
             // Could not parse/evaluate - mark as unsupported
             EuphoriaCompanion.LOGGER.warn("Line {}: Unsupported #if expression: {} (stack depth: {})",
-                lineNumber, expression, stack.size());
-            stack.push(new ConditionalContext(false, false));
+                lineNumber, tokens.string(tokens.argumentStart(), tokens.argumentEnd()), stack.size());
+            stack.push(false, 0, 0);
         }
     }
 
     /**
-     * Evaluates a complex conditional expression
-     * Supports: defined SYMBOL, variable comparisons, && and || operators
+     * Handles #elif directives
      */
-    private Boolean evaluateExpression(String expression) {
-        try {
-            EuphoriaCompanion.LOGGER.debug("Evaluating expression: [{}]", expression);
-
-            // Handle OR (||) - lowest precedence
-            if (expression.contains("||")) {
-                String[] orParts = expression.split("\\|\\|");
-                EuphoriaCompanion.LOGGER.debug("Split on OR, {} parts", orParts.length);
-                for (String part : orParts) {
-                    EuphoriaCompanion.LOGGER.debug("Evaluating OR part: [{}]", part.trim());
-                    Boolean result = evaluateExpression(part.trim());
-                    EuphoriaCompanion.LOGGER.debug("OR part result: {}", result);
-                    if (result == null) return null; // Can't evaluate
-                    if (result) return true; // Short-circuit OR
-                }
-                return false;
-            }
+    private void handleElifDirective(BlockPropertiesTokenizer tokens, ConditionalStack stack, int lineNumber) {
+        EuphoriaCompanion.LOGGER.debug("Line {}: #elif (stack depth before: {})", lineNumber, stack.size());
 
-            // Handle AND (&&) - higher precedence
-            if (expression.contains("&&")) {
-                String[] andParts = expression.split("&&");
-                EuphoriaCompanion.LOGGER.debug("Split on AND, {} parts", andParts.length);
-                for (String part : andParts) {
-                    EuphoriaCompanion.LOGGER.debug("Evaluating AND part: [{}]", part.trim());
-                    Boolean result = evaluateExpression(part.trim());
-                    EuphoriaCompanion.LOGGER.debug("AND part result: {}", result);
-                    if (result == null) return null; // Can't evaluate
-                    if (!result) return false; // Short-circuit AND
-                }
-                return true;
-            }
+        if (stack.isEmpty()) {
+            EuphoriaCompanion.LOGGER.warn("Line {}: #elif without matching #if (stack is empty)", lineNumber);
+            return;
+        }
 
-            // Handle "defined SYMBOL"
-            if (expression.startsWith("defined ")) {
-                String symbol = expression.substring(8).trim();
-                boolean defined = isSymbolDefined(symbol);
-                EuphoriaCompanion.LOGGER.debug("Checking defined {}: {}", symbol, defined);
-                return defined;
-            }
+        boolean supported = stack.supported();
+        long taken = stack.taken();
+        stack.pop();
+        long parentActive = stack.liveMask();
 
-            // Handle simple comparisons (MC_VERSION >= 12100, etc.)
-            Matcher matcher = IF_PATTERN.matcher("#if " + expression);
-            if (matcher.matches()) {
-                String variable = matcher.group(1);
-                String operator = matcher.group(2);
-                int value = Integer.parseInt(matcher.group(3));
-
-                switch (variable) {
-                    case "MC_VERSION" -> {
-                        boolean result = evaluateCondition(currentMCVersion, operator, value);
-                        EuphoriaCompanion.LOGGER.debug("MC_VERSION {} {} -> {}", operator, value, result);
-                        return result;
-                    }
-                    case "EUPHORIA_PATCHES_OCULUS_VERSION" -> {
-                        boolean result = evaluateCondition(oculusVersion, operator, value);
-                        EuphoriaCompanion.LOGGER.debug("EUPHORIA_PATCHES_OCULUS_VERSION {} {} -> {}", operator, value, result);
-                        return result;
-                    }
-                    case "IRIS_TAG_SUPPORT" -> {
-                        boolean result = evaluateCondition(irisTagSupport, operator, value);
-                        EuphoriaCompanion.LOGGER.debug("IRIS_TAG_SUPPORT ({}) {} {} -> {}", irisTagSupport, operator, value, result);
-                        return result;
-                    }
-                }
-            }
+        // An earlier branch of this chain was already taken in every environment: skip without evaluating
+        if (taken == allEnvironments) {
+            stack.push(supported, 0, taken);
+            EuphoriaCompanion.LOGGER.debug("Line {}: #elif skipped, earlier branch taken", lineNumber);
+            return;
+        }
 
-            // Couldn't parse this expression
-            EuphoriaCompanion.LOGGER.debug("Could not parse expression: [{}]", expression);
-            return null;
+        ConditionCache.Entry condition = CONDITIONS.get(tokens, tokens.argumentStart(), tokens.argumentEnd());
 
-        } catch (Exception e) {
-            EuphoriaCompanion.LOGGER.warn("Error evaluating expression: {}", expression, e);
-            return null;
+        if (condition.supported()) {
+            long result = evaluate(condition.condition());
+            long active = parentActive & ~taken & result;
+            stack.push(true, active, taken | result);
+            EuphoriaCompanion.LOGGER.debug("Line {}: #elif evaluated to {} -> {} (stack depth after: {})",
+                lineNumber, result, active, stack.size());
+        } else {
+            EuphoriaCompanion.LOGGER.warn("Line {}: Unsupported #elif expression: {} (stack depth: {})",
+                lineNumber, tokens.string(tokens.argumentStart(), tokens.argumentEnd()), stack.size());
+            stack.push(false, 0, taken);
         }
     }
 
-    /**
-     * Checks if a symbol is defined
-     */
-    private boolean isSymbolDefined(String symbol) {
-        return switch (symbol) {
-            case "EUPHORIA_PATCHES_IRIS" -> irisLoaded;
-            case "EUPHORIA_PATCHES_OCULUS" -> oculusLoaded;
-            default -> false; // Unknown symbols are not defined
-        };
-    }
-
     /**
      * Handles #ifdef and #ifndef conditional directives
      */
-    private void handleIfdefDirective(String line, Deque<ConditionalContext> stack, int lineNumber) {
-        boolean isIfndef = line.startsWith("#ifndef");
+    private void handleIfdefDirective(BlockPropertiesTokenizer tokens, ConditionalStack stack, int lineNumber) {
+        boolean isIfndef = tokens.type() == BlockPropertiesTokenizer.LineType.IFNDEF;
         String directiveName = isIfndef ? "#ifndef" : "#ifdef";
 
-        EuphoriaCompanion.LOGGER.debug("Line {}: {} [{}] (stack depth before: {})", lineNumber, directiveName, line, stack.size());
+        // The symbol name after #ifdef/#ifndef
+        int symbolStart = tokens.argumentStart();
+        int symbolEnd = tokens.argumentEnd();
 
-        // Extract the symbol name after #ifdef/#ifndef
-        String symbol = line.substring(isIfndef ? 8 : 7).trim();
+        EuphoriaCompanion.LOGGER.debug("Line {}: {} (stack depth before: {})", lineNumber, directiveName, stack.size());
 
-        // Check if we're already in an inactive context
-        boolean parentActive = isActiveContext(stack);
+        // Environments in which the enclosing context is active
+        long parentActive = stack.liveMask();
 
         // Check for Euphoria Companion defines (only available with Euphoria Patches 1.7.8+)
-        boolean symbolDefined = false;
+        long symbolDefined = 0;
         boolean supported = false;
 
-        if (symbol.equals("EUPHORIA_PATCHES_IRIS")) {
-            symbolDefined = irisLoaded;
+        if (tokens.regionEquals(symbolStart, symbolEnd, EUPHORIA_PATCHES_IRIS)) {
+            symbolDefined = irisMask;
             supported = true;
             EuphoriaCompanion.LOGGER.debug("Line {}: Checking EUPHORIA_PATCHES_IRIS -> {}", lineNumber, symbolDefined);
-        } else if (symbol.equals("EUPHORIA_PATCHES_OCULUS")) {
-            symbolDefined = oculusLoaded;
+        } else if (tokens.regionEquals(symbolStart, symbolEnd, EUPHORIA_PATCHES_OCULUS)) {
+            symbolDefined = oculusMask;
             supported = true;
             EuphoriaCompanion.LOGGER.debug("Line {}: Checking EUPHORIA_PATCHES_OCULUS -> {}", lineNumber, symbolDefined);
         }
 
-        // #ifdef: active if symbol IS defined
-        // #ifndef: active if symbol IS NOT defined
-        boolean condition = isIfndef != symbolDefined;
-        boolean active = parentActive && condition;
+        // #ifdef: active where symbol IS defined
+        // #ifndef: active where symbol IS NOT defined
+        long condition = isIfndef ? allEnvironments & ~symbolDefined : symbolDefined;
+        long active = parentActive & condition;
 
-        stack.push(new ConditionalContext(supported, active));
+        // Unknown symbols never count as a taken branch, so a following #else still acts as fallback
+        stack.push(supported, active, supported ? condition : 0);
 
-        EuphoriaCompanion.LOGGER.debug("Line {}: {} {} -> {} (stack depth after: {})",
-            lineNumber, directiveName, symbol, active, stack.size());
+        if (EuphoriaCompanion.LOGGER.isDebugEnabled()) {
+            EuphoriaCompanion.LOGGER.debug("Line {}: {} {} -> {} (stack depth after: {})",
+                lineNumber, directiveName, tokens.string(symbolStart, symbolEnd), active, stack.size());
+        }
     }
 
     /**
      * Handles #else directives
      */
-    private void handleElseDirective(Deque<ConditionalContext> stack, int lineNumber) {
+    private void handleElseDirective(ConditionalStack stack, int lineNumber) {
         EuphoriaCompanion.LOGGER.debug("Line {}: #else (stack depth before: {})", lineNumber, stack.size());
 
         if (stack.isEmpty()) {
@@ -366,33 +543,28 @@ public class BlockPropertiesParser {
         }
 
         // Pop the current context and invert its condition
-        ConditionalContext current = stack.pop();
-
-        // Check if parent context is active
-        boolean parentActive = isActiveContext(stack);
-
-        // #else logic:
-        // - If the #if was supported and evaluated: flip the condition
-        // - If the #if was unsupported (couldn't parse): activate #else as fallback
-        boolean elseActive;
-        if (current.supported()) {
-            // Supported #if: activate #else only if #if was false
-            elseActive = parentActive && !current.active();
-        } else {
-            // Unsupported #if: activate #else as fallback (assume we want the #else block)
-            elseActive = parentActive;
-        }
+        boolean supported = stack.supported();
+        long taken = stack.taken();
+        stack.pop();
+
+        // Environments in which the parent context is active
+        long parentActive = stack.liveMask();
+
+        // #else logic, per environment:
+        // - If a supported #if/#elif branch evaluated true: skip the #else
+        // - If all branches were false, or unsupported (couldn't parse): activate #else as fallback
+        long elseActive = parentActive & ~taken;
 
-        stack.push(new ConditionalContext(current.supported(), elseActive));
+        stack.push(supported, elseActive, allEnvironments & ~taken);
 
         EuphoriaCompanion.LOGGER.debug("Line {}: #else -> {} (supported: {}, stack depth after: {})",
-            lineNumber, elseActive, current.supported(), stack.size());
+            lineNumber, elseActive, supported, stack.size());
     }
 
     /**
      * Handles #endif directives
      */
-    private void handleEndifDirective(Deque<ConditionalContext> stack, int lineNumber) {
+    private void handleEndifDirective(ConditionalStack stack, int lineNumber) {
         EuphoriaCompanion.LOGGER.debug("Line {}: #endif (stack depth before: {})", lineNumber, stack.size());
 
         if (!stack.isEmpty()) {
@@ -405,220 +577,230 @@ public class BlockPropertiesParser {
 
     /**
      * Handles #define directives for tag definitions
+     * Format: "#define IDENTIFIER value", where IDENTIFIER consists of word characters
      */
-    private void handleDefineDirective(String line, int lineNumber) {
-        Matcher matcher = DEFINE_PATTERN.matcher(line);
-        if (matcher.matches()) {
-            String identifier = matcher.group(1);
-            String tagName = matcher.group(2);
-            tagDefinitions.put(identifier, tagName);
-            EuphoriaCompanion.LOGGER.debug("Line {}: Defined tag {} = %{}", lineNumber, identifier, tagName);
-        } else {
-            EuphoriaCompanion.LOGGER.warn("Line {}: Invalid #define directive: {}", lineNumber, line);
+    private void handleDefineDirective(BlockPropertiesTokenizer tokens, long live, int lineNumber) {
+        int identifierStart = tokens.argumentStart();
+        int end = tokens.argumentEnd();
+
+        int identifierEnd = identifierStart;
+        while (identifierEnd < end && BlockPropertiesTokenizer.isWordChar(tokens.byteAt(identifierEnd))) {
+            identifierEnd++;
+        }
+        int valueStart = identifierEnd;
+        while (valueStart < end && BlockPropertiesTokenizer.isWhitespace(tokens.byteAt(valueStart))) {
+            valueStart++;
+        }
+
+        boolean separatedFromDirective = identifierStart > tokens.lineStart() + DEFINE_LENGTH;
+        boolean separatedFromValue = valueStart > identifierEnd;
+        if (!separatedFromDirective || identifierEnd == identifierStart || !separatedFromValue || valueStart == end) {
+            EuphoriaCompanion.LOGGER.warn("Line {}: Invalid #define directive: {}", lineNumber,
+                tokens.string(tokens.lineStart(), tokens.lineEnd()));
+            return;
+        }
+
+        String identifier = tokens.string(identifierStart, identifierEnd);
+        String tagName = tokens.string(valueStart, end);
+        boolean added = false;
+        for (long remaining = live; remaining != 0; remaining &= remaining - 1) {
+            added |= results[Long.numberOfTrailingZeros(remaining)].defineTag(identifier, tagName);
+        }
+        if (added) {
+            addTagIdentifierHash(identifier.hashCode());
         }
+        EuphoriaCompanion.LOGGER.debug("Line {}: Defined tag {} = %{}", lineNumber, identifier, tagName);
     }
 
     /**
      * Handles property assignments (block.XX=..., layer.XX=..., etc.)
      */
-    private void handlePropertyAssignment(String line, int lineNumber) {
-        String[] parts = line.split("=", 2);
-        if (parts.length != 2) {
-            return;
-        }
+    private void handlePropertyAssignment(BlockPropertiesTokenizer tokens, long live, int lineNumber) {
+        int keyStart = tokens.keyStart();
+        int keyEnd = tokens.keyEnd();
 
-        String key = parts[0].trim();
-        String value = parts[1].trim();
-
-        // Handle block property assignments (block.XX=...)
-        if (key.startsWith("block.")) {
-            handleBlockProperty(key, value, lineNumber);
+        // Handle block property assignments (block.XX=..., or item.XX=... / entity.XX=... for the other files)
+        if (tokens.regionStartsWith(keyStart, keyEnd, file.keyPrefix())) {
+            handleBlockProperty(tokens, live, lineNumber);
         }
         // Handle render layer assignments (layer.translucent=...)
-        else if (key.startsWith("layer.")) {
-            handleRenderLayer(key, value);
+        else if (tokens.regionStartsWith(keyStart, keyEnd, LAYER_PREFIX)) {
+            handleRenderLayer(tokens, live);
         }
     }
 
     /**
      * Handles block property assignments
      */
-    private void handleBlockProperty(String key, String value, int lineNumber) {
+    private void handleBlockProperty(BlockPropertiesTokenizer tokens, long live, int lineNumber) {
         // Extract property ID from "block.XX"
-        String propertyIdStr = key.substring(6); // Remove "block." prefix
-        int propertyId;
-        try {
-            propertyId = Integer.parseInt(propertyIdStr);
-        } catch (NumberFormatException e) {
-            EuphoriaCompanion.LOGGER.warn("Line {}: Invalid property ID: {}", lineNumber, propertyIdStr);
+        int idStart = tokens.keyStart() + file.keyPrefix().length;
+        long parsedId = tokens.parseInt(idStart, tokens.keyEnd());
+        if (parsedId == BlockPropertiesTokenizer.NOT_AN_INT) {
+            EuphoriaCompanion.LOGGER.warn("Line {}: Invalid property ID: {}", lineNumber,
+                tokens.string(idStart, tokens.keyEnd()));
             return;
         }
+        int propertyId = (int) parsedId;
+        Integer boxedPropertyId = null;  // Only tag assignments need the boxed form
 
         // Parse block IDs from value
-        String[] blockIds = value.split("\\s+");
-        for (String blockId : blockIds) {
-            blockId = blockId.trim();
-            if (blockId.isEmpty()) {
-                continue;
-            }
+        while (tokens.nextValueToken()) {
+            int start = tokens.tokenStart();
+            int end = tokens.tokenEnd();
+
+            // Tag identifier candidate, null when the token cannot name a #define'd tag in any environment
+            String tagCandidate = findTagCandidate(tokens, start, end);
+            int blockSymbol = SymbolTable.NONE;
+            boolean normalized = false;
+
+            for (long remaining = live; remaining != 0; remaining &= remaining - 1) {
+                BlockPropertiesResult result = results[Long.numberOfTrailingZeros(remaining)];
+
+                // Check if this is a tag reference
+                if (tagCandidate != null && result.isTagDefined(tagCandidate)) {
+                    // Tag-based assignment
+                    if (boxedPropertyId == null) {
+                        boxedPropertyId = propertyId;
+                    }
+                    result.assignTag(tagCandidate, boxedPropertyId);
+                    EuphoriaCompanion.LOGGER.debug("Line {}: Tag {} -> property {}", lineNumber, tagCandidate, propertyId);
+                    continue;
+                }
 
-            // Check if this is a tag reference
-            if (tagDefinitions.containsKey(blockId)) {
-                // Tag-based assignment
-                tagToProperty.put(blockId, propertyId);
-                EuphoriaCompanion.LOGGER.debug("Line {}: Tag {} -> property {}", lineNumber, blockId, propertyId);
-            } else {
-                // Direct block assignment
-                String normalizedId = normalizeBlockId(blockId);
-                if (normalizedId == null) {
+                // Direct block assignment, the normalized ID is interned once and shared by all environments
+                if (!normalized) {
+                    blockSymbol = normalizeBlockId(tokens, start, end);
+                    normalized = true;
+                }
+                if (blockSymbol == SymbolTable.NONE) {
                     continue; // Skip invalid block ID
                 }
 
-                // Check for duplicates
-                if (blockToProperty.containsKey(normalizedId)) {
-                    int existingProperty = blockToProperty.get(normalizedId);
-
-                    // Track this as a duplicate
-                    duplicateBlocks.computeIfAbsent(normalizedId, k -> new ArrayList<>());
-                    List<Integer> properties = duplicateBlocks.get(normalizedId);
-
-                    // Add the existing property if not already in the list
-                    if (!properties.contains(existingProperty)) {
-                        properties.add(existingProperty);
-                    }
-
-                    // Add the new property
-                    if (!properties.contains(propertyId)) {
-                        properties.add(propertyId);
-                    }
-
+                int line = tokens.tokenLineNumber();
+                int existing = EuphoriaCompanion.LOGGER.isDebugEnabled() ? result.propertyOf(blockSymbol) : 0;
+                if (result.assignBlock(blockSymbol, propertyId, line)) {
                     EuphoriaCompanion.LOGGER.debug("Line {}: Duplicate block {} already mapped to block.{}, now also to block.{}",
-                        lineNumber, normalizedId, existingProperty, propertyId);
+                        line, symbols.name(blockSymbol), existing, propertyId);
                 }
-
-                blockToProperty.put(normalizedId, propertyId);
             }
         }
     }
 
+    /**
+     * Returns the token as a string if its hash matches a #define'd tag identifier, otherwise null.
+     * Tokens are pre-filtered by hash so plain block IDs never allocate here.
+     */
+    private String findTagCandidate(BlockPropertiesTokenizer tokens, int start, int end) {
+        if (tagIdentifierHashes.length == 0
+                || Arrays.binarySearch(tagIdentifierHashes, tokens.regionHash(start, end)) < 0) {
+            return null;
+        }
+
+        return tokens.string(start, end);
+    }
+
+    private void addTagIdentifierHash(int hash) {
+        int index = Arrays.binarySearch(tagIdentifierHashes, hash);
+        if (index >= 0) {
+            return;
+        }
+
+        int insertion = -index - 1;
+        int[] hashes = new int[tagIdentifierHashes.length + 1];
+        System.arraycopy(tagIdentifierHashes, 0, hashes, 0, insertion);
+        hashes[insertion] = hash;
+        System.arraycopy(tagIdentifierHashes, insertion, hashes, insertion + 1, tagIdentifierHashes.length - insertion);
+        tagIdentifierHashes = hashes;
+    }
+
     /**
      * Handles render layer assignments
      */
-    private void handleRenderLayer(String key, String value) {
+    private void handleRenderLayer(BlockPropertiesTokenizer tokens, long live) {
         // Extract layer name from "layer.XX"
-        String layerName = key.substring(6); // Remove "layer." prefix
+        String layerName = tokens.string(tokens.keyStart() + LAYER_PREFIX.length, tokens.keyEnd());
 
         // Parse block IDs from value
-        String[] blockIds = value.split("\\s+");
-        for (String blockId : blockIds) {
-            blockId = blockId.trim();
-            if (blockId.isEmpty()) {
+        while (tokens.nextValueToken()) {
+            int blockSymbol = normalizeBlockId(tokens, tokens.tokenStart(), tokens.tokenEnd());
+            if (blockSymbol == SymbolTable.NONE) {
                 continue;
             }
-
-            String normalizedId = normalizeBlockId(blockId);
-            if (normalizedId != null) {
-                blockToRenderLayer.put(normalizedId, layerName);
+            for (long remaining = live; remaining != 0; remaining &= remaining - 1) {
+                results[Long.numberOfTrailingZeros(remaining)].assignRenderLayer(blockSymbol, layerName);
             }
         }
     }
 
     /**
-     * Normalizes a block ID (adds minecraft: namespace if missing)
+     * Normalizes a block ID token (adds minecraft: namespace if missing) and returns its symbol,
+     * or {@link SymbolTable#NONE} if the token is not a valid block ID
      * Handles: "cobweb", "furnace:lit=true", "minecraft:stone", "create:andesite_casing:waterlogged=true"
      */
-    private String normalizeBlockId(String blockId) {
-        // Validate input
-        if (blockId == null || blockId.trim().isEmpty()) {
-            EuphoriaCompanion.LOGGER.warn("Empty or null block ID provided");
-            return null;
-        }
-
-        String trimmed = blockId.trim();
-
+    private int normalizeBlockId(BlockPropertiesTokenizer tokens, int start, int end) {
         // Check for invalid cases
-        if (trimmed.startsWith(":") || trimmed.endsWith(":")) {
-            EuphoriaCompanion.LOGGER.warn("Invalid block ID format: {}", blockId);
-            return null;
+        if (tokens.byteAt(start) == ':' || tokens.byteAt(end - 1) == ':') {
+            EuphoriaCompanion.LOGGER.warn("Invalid block ID format: {}", tokens.string(start, end));
+            return SymbolTable.NONE;
         }
 
-        // Split by colon to analyze structure
-        String[] parts = trimmed.split(":");
-
-        if (parts.length == 1) {
+        int firstColon = tokens.indexOf(':', start, end);
+        if (firstColon < 0) {
             // No colon: "cobweb" -> "minecraft:cobweb"
-            return "minecraft:" + trimmed;
+            return symbols.intern(tokens, MINECRAFT_NAMESPACE, start, end);
         }
 
-        // Check if second part contains '=' (indicates blockstate)
-        if (parts[1].contains("=")) {
+        // Check if second segment contains '=' (indicates blockstate)
+        int secondColon = tokens.indexOf(':', firstColon + 1, end);
+        int segmentEnd = secondColon < 0 ? end : secondColon;
+        if (tokens.indexOf('=', firstColon + 1, segmentEnd) >= 0) {
             // Format: "furnace:lit=true" (vanilla block with state, no namespace)
-            return "minecraft:" + trimmed;
+            return symbols.intern(tokens, MINECRAFT_NAMESPACE, start, end);
         }
 
-        // Check if second part contains another ':' or if there are more than 2 parts
-        // Format: "namespace:blockname:property=value..."
-        // Already has namespace, return as-is
+        // Format: "namespace:blockname" or "namespace:blockname:property=value..."
+        // Already has namespace, use as-is
+        return symbols.intern(tokens, null, start, end);
+    }
 
-        // Two parts, second doesn't contain '=': "namespace:blockname" or "minecraft:stone"
-        // Already has namespace, return as-is
-        return trimmed;
+    public SymbolTable getSymbols() {
+        return symbols;
     }
 
     /**
-     * Checks if the current context is active
+     * Results for every environment, in the order the environments were given
      */
-    private boolean isActiveContext(Deque<ConditionalContext> stack) {
-        for (ConditionalContext context : stack) {
-            if (!context.active) {
-                return false;
-            }
-        }
-        return true;
+    public List<BlockPropertiesResult> getResults() {
+        return List.of(results);
     }
 
-    /**
-     * Evaluates a conditional expression
-     */
-    private boolean evaluateCondition(int left, String operator, int right) {
-        return switch (operator) {
-            case "==" -> left == right;
-            case "!=" -> left != right;
-            case "<" -> left < right;
-            case ">" -> left > right;
-            case "<=" -> left <= right;
-            case ">=" -> left >= right;
-            default -> {
-                EuphoriaCompanion.LOGGER.warn("Unknown operator: {}", operator);
-                yield false;
-            }
-        };
+    public BlockPropertiesResult getResult(int environmentIndex) {
+        return results[environmentIndex];
     }
 
-    // Getters for parsed data
+    // Getters for parsed data (of the first environment)
     public Map<String, Integer> getBlockToProperty() {
-        return Collections.unmodifiableMap(blockToProperty);
+        return results[0].getBlockToProperty();
     }
 
     public Map<String, String> getBlockToRenderLayer() {
-        return Collections.unmodifiableMap(blockToRenderLayer);
+        return results[0].getBlockToRenderLayer();
     }
 
     public Map<String, String> getTagDefinitions() {
-        return Collections.unmodifiableMap(tagDefinitions);
+        return results[0].getTagDefinitions();
     }
 
     public Map<String, Integer> getTagToProperty() {
-        return Collections.unmodifiableMap(tagToProperty);
+        return results[0].getTagToProperty();
     }
 
     public Map<String, List<Integer>> getDuplicateBlocks() {
-        return Collections.unmodifiableMap(duplicateBlocks);
+        return results[0].getDuplicateBlocks();
     }
 
-    /**
-     * Represents a conditional context in the stack
-     */
-    private record ConditionalContext(boolean supported, boolean active) {
+    public Map<String, DuplicateAssignments> getDuplicateAssignments() {
+        return results[0].getDuplicateAssignments();
     }
 }
@@ -0,0 +1,400 @@
+package eclipse.euphoriacompanion.parser;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.ints.IntSets;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Parsed contents of a block.properties file as seen by one preprocessor environment.
+ * Block IDs are stored as {@link SymbolTable} symbols; the String-keyed getters are views built on first use.
+ * The views are built under the result's lock, since the analysis phases of a pack read them concurrently.
+ * {@link #getBlockEntries()} holds every assignment with its blockstate string parsed, for all analysis phases.
+ */
+public class BlockPropertiesResult {
+    private static final int MAX_STRING_BYTES = 1 << 20;  // Sanity limit when reading persisted results
+
+    private final PreprocessorEnvironment environment;
+    private final SymbolTable symbols;
+    private final Int2IntOpenHashMap blockToProperty = new Int2IntOpenHashMap();
+    private final Int2IntOpenHashMap blockToLine = new Int2IntOpenHashMap();  // Source line of the latest assignment
+    private final Int2ObjectOpenHashMap<String> blockToRenderLayer = new Int2ObjectOpenHashMap<>();
+    private final Map<String, String> tagDefinitions = new LinkedHashMap<>();  // Preserve insertion order for first-assignment-wins
+    private final Map<String, Integer> tagToProperty = new LinkedHashMap<>();  // Preserve insertion order for first-assignment-wins
+    private final Int2ObjectOpenHashMap<DuplicateAssignments> duplicateBlocks = new Int2ObjectOpenHashMap<>();
+
+    // String-keyed views, dropped whenever the underlying data changes; built and read under this result's lock
+    private Map<String, Integer> blockToPropertyView;
+    private Map<String, String> blockToRenderLayerView;
+    private Map<String, List<Integer>> duplicateBlocksView;
+    private Map<String, DuplicateAssignments> duplicateAssignmentsView;
+    private List<BlockEntry> blockEntries;
+
+    BlockPropertiesResult(PreprocessorEnvironment environment, SymbolTable symbols) {
+        this.environment = environment;
+        this.symbols = symbols;
+    }
+
+    /**
+     * Assigns a block to a property ID, tracking duplicates with the source line of each assignment
+     * Returns true if the block was already assigned before
+     */
+    boolean assignBlock(int blockSymbol, int propertyId, int line) {
+        int sizeBefore = blockToProperty.size();
+        int existing = blockToProperty.put(blockSymbol, propertyId);
+        int existingLine = blockToLine.put(blockSymbol, line);
+        blockToPropertyView = null;
+        blockEntries = null;
+
+        if (blockToProperty.size() != sizeBefore) {
+            return false;
+        }
+
+        // Track this as a duplicate, starting with the assignment it conflicts with
+        DuplicateAssignments assignments = duplicateBlocks.get(blockSymbol);
+        if (assignments == null) {
+            assignments = new DuplicateAssignments();
+            assignments.add(existing, existingLine);
+            duplicateBlocks.put(blockSymbol, assignments);
+        }
+        assignments.add(propertyId, line);
+
+        duplicateBlocksView = null;
+        duplicateAssignmentsView = null;
+        return true;
+    }
+
+    /**
+     * Property ID the block was last assigned to (only meaningful if the block is assigned)
+     */
+    int propertyOf(int blockSymbol) {
+        return blockToProperty.get(blockSymbol);
+    }
+
+    void assignTag(String identifier, Integer propertyId) {
+        tagToProperty.put(identifier, propertyId);
+    }
+
+    /**
+     * Defines a tag, returning true if the identifier was not defined before
+     */
+    boolean defineTag(String identifier, String tagName) {
+        return tagDefinitions.put(identifier, tagName) == null;
+    }
+
+    boolean isTagDefined(String identifier) {
+        return tagDefinitions.containsKey(identifier);
+    }
+
+    void assignRenderLayer(int blockSymbol, String layerName) {
+        blockToRenderLayer.put(blockSymbol, layerName);
+        blockToRenderLayerView = null;
+    }
+
+    /**
+     * Appends the assignments of a result parsed from a later part of the same file, as if parsing had continued:
+     * later block and layer assignments win, duplicates across both parts are tracked, and tags keep the order of
+     * their first assignment. symbolMap translates the other result's symbols into this result's table.
+     */
+    void mergeFrom(BlockPropertiesResult other, int[] symbolMap) {
+        for (IntIterator iterator = other.blockToProperty.keySet().iterator(); iterator.hasNext(); ) {
+            int symbol = iterator.nextInt();
+            int target = symbolMap[symbol];
+            DuplicateAssignments assignments = other.duplicateBlocks.get(symbol);
+            if (assignments != null) {
+                for (int i = 0; i < assignments.size(); i++) {
+                    assignBlock(target, assignments.propertyId(i), assignments.line(i));
+                }
+            } else {
+                assignBlock(target, other.blockToProperty.get(symbol), other.blockToLine.get(symbol));
+            }
+        }
+
+        for (Int2ObjectMap.Entry<String> entry : other.blockToRenderLayer.int2ObjectEntrySet()) {
+            assignRenderLayer(symbolMap[entry.getIntKey()], entry.getValue());
+        }
+
+        for (Map.Entry<String, Integer> entry : other.tagToProperty.entrySet()) {
+            assignTag(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Copy of this result with its block IDs interned into another table, so a result kept across runs (cached or
+     * incremental) can be analyzed against a run's table without the run's symbols outliving the run
+     */
+    public BlockPropertiesResult withSymbols(SymbolTable target) {
+        if (target == symbols) {
+            return this;
+        }
+
+        BlockPropertiesResult copy = new BlockPropertiesResult(environment, target);
+        copy.tagDefinitions.putAll(tagDefinitions);
+        copy.mergeFrom(this, target.internAll(symbols));
+        return copy;
+    }
+
+    // Direct updates used by IncrementalBlockPropertiesParser, which works out the final state of a key itself
+
+    /**
+     * Sets a block's final assignment; duplicates holds every assignment in file order, or null if there was only one
+     */
+    void setBlock(int blockSymbol, int propertyId, int line, DuplicateAssignments duplicates) {
+        blockToProperty.put(blockSymbol, propertyId);
+        blockToLine.put(blockSymbol, line);
+        if (duplicates != null) {
+            duplicateBlocks.put(blockSymbol, duplicates);
+        } else {
+            duplicateBlocks.remove(blockSymbol);
+        }
+        invalidateBlockViews();
+    }
+
+    /**
+     * Moves every recorded source line after the given line by delta, after lines were added or removed before them
+     */
+    void shiftLines(int afterLine, int delta) {
+        for (IntIterator iterator = blockToLine.keySet().iterator(); iterator.hasNext(); ) {
+            int symbol = iterator.nextInt();
+            int line = blockToLine.get(symbol);
+            if (line > afterLine) {
+                blockToLine.put(symbol, line + delta);
+            }
+        }
+        for (DuplicateAssignments assignments : duplicateBlocks.values()) {
+            assignments.shiftLines(afterLine, delta);
+        }
+    }
+
+    void removeBlock(int blockSymbol) {
+        blockToProperty.remove(blockSymbol);
+        blockToLine.remove(blockSymbol);
+        duplicateBlocks.remove(blockSymbol);
+        invalidateBlockViews();
+    }
+
+    void removeRenderLayer(int blockSymbol) {
+        blockToRenderLayer.remove(blockSymbol);
+        blockToRenderLayerView = null;
+    }
+
+    /**
+     * Replaces all tag assignments, given in first-assignment order
+     */
+    void setTagAssignments(Map<String, Integer> assignments) {
+        tagToProperty.clear();
+        tagToProperty.putAll(assignments);
+    }
+
+    void clear() {
+        blockToProperty.clear();
+        blockToLine.clear();
+        blockToRenderLayer.clear();
+        tagDefinitions.clear();
+        tagToProperty.clear();
+        duplicateBlocks.clear();
+        invalidateBlockViews();
+        blockToRenderLayerView = null;
+    }
+
+    private void invalidateBlockViews() {
+        blockToPropertyView = null;
+        blockEntries = null;
+        duplicateBlocksView = null;
+        duplicateAssignmentsView = null;
+    }
+
+    // Getters for parsed data
+    public PreprocessorEnvironment getEnvironment() {
+        return environment;
+    }
+
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * Symbols of all directly assigned block IDs (as written, including blockstates)
+     */
+    public IntSet getBlockSymbols() {
+        return IntSets.unmodifiable(blockToProperty.keySet());
+    }
+
+    public synchronized Map<String, Integer> getBlockToProperty() {
+        if (blockToPropertyView == null) {
+            Map<String, Integer> view = new HashMap<>(blockToProperty.size() * 2);
+            for (IntIterator iterator = blockToProperty.keySet().iterator(); iterator.hasNext(); ) {
+                int symbol = iterator.nextInt();
+                view.put(symbols.name(symbol), blockToProperty.get(symbol));
+            }
+            blockToPropertyView = Collections.unmodifiableMap(view);
+        }
+        return blockToPropertyView;
+    }
+
+    /**
+     * Every direct block assignment with its blockstate string parsed, built once on first use
+     */
+    public synchronized List<BlockEntry> getBlockEntries() {
+        if (blockEntries == null) {
+            List<BlockEntry> entries = new ArrayList<>(blockToProperty.size());
+            for (IntIterator iterator = blockToProperty.keySet().iterator(); iterator.hasNext(); ) {
+                int symbol = iterator.nextInt();
+                entries.add(BlockEntry.parse(symbol, blockToProperty.get(symbol), symbols));
+            }
+            blockEntries = Collections.unmodifiableList(entries);
+        }
+        return blockEntries;
+    }
+
+    public synchronized Map<String, String> getBlockToRenderLayer() {
+        if (blockToRenderLayerView == null) {
+            Map<String, String> view = new HashMap<>(blockToRenderLayer.size() * 2);
+            for (Int2ObjectMap.Entry<String> entry : blockToRenderLayer.int2ObjectEntrySet()) {
+                view.put(symbols.name(entry.getIntKey()), entry.getValue());
+            }
+            blockToRenderLayerView = Collections.unmodifiableMap(view);
+        }
+        return blockToRenderLayerView;
+    }
+
+    public Map<String, String> getTagDefinitions() {
+        return Collections.unmodifiableMap(tagDefinitions);
+    }
+
+    public Map<String, Integer> getTagToProperty() {
+        return Collections.unmodifiableMap(tagToProperty);
+    }
+
+    /**
+     * Distinct property IDs of every block assigned more than once
+     */
+    public synchronized Map<String, List<Integer>> getDuplicateBlocks() {
+        if (duplicateBlocksView == null) {
+            Map<String, List<Integer>> view = new HashMap<>(duplicateBlocks.size() * 2);
+            for (Int2ObjectMap.Entry<DuplicateAssignments> entry : duplicateBlocks.int2ObjectEntrySet()) {
+                int[] propertyIds = entry.getValue().distinctPropertyIds();
+                List<Integer> properties = new ArrayList<>(propertyIds.length);
+                for (int propertyId : propertyIds) {
+                    properties.add(propertyId);
+                }
+                view.put(symbols.name(entry.getIntKey()), properties);
+            }
+            duplicateBlocksView = Collections.unmodifiableMap(view);
+        }
+        return duplicateBlocksView;
+    }
+
+    /**
+     * Every assignment (property ID and source line) of each block assigned more than once
+     */
+    public synchronized Map<String, DuplicateAssignments> getDuplicateAssignments() {
+        if (duplicateAssignmentsView == null) {
+            Map<String, DuplicateAssignments> view = new HashMap<>(duplicateBlocks.size() * 2);
+            for (Int2ObjectMap.Entry<DuplicateAssignments> entry : duplicateBlocks.int2ObjectEntrySet()) {
+                view.put(symbols.name(entry.getIntKey()), entry.getValue());
+            }
+            duplicateAssignmentsView = Collections.unmodifiableMap(view);
+        }
+        return duplicateAssignmentsView;
+    }
+
+    /**
+     * Writes the result in the {@link ParseCache} file format (block IDs by name, so symbols need not match on reload)
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(blockToProperty.size());
+        for (IntIterator iterator = blockToProperty.keySet().iterator(); iterator.hasNext(); ) {
+            int symbol = iterator.nextInt();
+            writeString(out, symbols.name(symbol));
+
+            // Every assignment in file order, so reading replays the exact duplicate history
+            DuplicateAssignments assignments = duplicateBlocks.get(symbol);
+            if (assignments != null) {
+                out.writeInt(assignments.size());
+                for (int i = 0; i < assignments.size(); i++) {
+                    out.writeInt(assignments.propertyId(i));
+                    out.writeInt(assignments.line(i));
+                }
+            } else {
+                out.writeInt(1);
+                out.writeInt(blockToProperty.get(symbol));
+                out.writeInt(blockToLine.get(symbol));
+            }
+        }
+
+        out.writeInt(blockToRenderLayer.size());
+        for (Int2ObjectMap.Entry<String> entry : blockToRenderLayer.int2ObjectEntrySet()) {
+            writeString(out, symbols.name(entry.getIntKey()));
+            writeString(out, entry.getValue());
+        }
+
+        out.writeInt(tagDefinitions.size());
+        for (Map.Entry<String, String> entry : tagDefinitions.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+
+        out.writeInt(tagToProperty.size());
+        for (Map.Entry<String, Integer> entry : tagToProperty.entrySet()) {
+            writeString(out, entry.getKey());
+            out.writeInt(entry.getValue());
+        }
+    }
+
+    /**
+     * Reads a result written by {@link #writeTo(DataOutputStream)}, interning its block IDs into the given table
+     */
+    static BlockPropertiesResult readFrom(DataInputStream in, PreprocessorEnvironment environment, SymbolTable symbols) throws IOException {
+        BlockPropertiesResult result = new BlockPropertiesResult(environment, symbols);
+
+        int blocks = in.readInt();
+        for (int i = 0; i < blocks; i++) {
+            int symbol = symbols.intern(readString(in));
+            int assignments = in.readInt();
+            for (int j = 0; j < assignments; j++) {
+                result.assignBlock(symbol, in.readInt(), in.readInt());
+            }
+        }
+
+        int layers = in.readInt();
+        for (int i = 0; i < layers; i++) {
+            result.assignRenderLayer(symbols.intern(readString(in)), readString(in));
+        }
+
+        int tags = in.readInt();
+        for (int i = 0; i < tags; i++) {
+            result.defineTag(readString(in), readString(in));
+        }
+
+        int tagAssignments = in.readInt();
+        for (int i = 0; i < tagAssignments; i++) {
+            result.assignTag(readString(in), in.readInt());
+        }
+        return result;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_STRING_BYTES) {
+            throw new IOException("Invalid string length in parse cache: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,494 @@
+package eclipse.euphoriacompanion.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Splits a block.properties buffer into logical lines and tokens without creating Strings.
+ * Lines, keys, values and value tokens are exposed as offsets into the current line buffer;
+ * callers materialize a String only for the pieces they actually keep.
+ */
+final class BlockPropertiesTokenizer {
+    private static final byte[] IFDEF = ascii("#ifdef ");
+    private static final byte[] IFNDEF = ascii("#ifndef ");
+    private static final byte[] IF = ascii("#if ");
+    private static final byte[] ELIF = ascii("#elif ");
+    private static final byte[] ELSE = ascii("#else");
+    private static final byte[] ENDIF = ascii("#endif");
+    private static final byte[] DEFINE = ascii("#define");
+
+    static final long NOT_AN_INT = Long.MIN_VALUE;
+
+    /**
+     * Kind of a logical line, checked in the same order the parser has always used
+     */
+    enum LineType {
+        IFDEF, IFNDEF, IF, ELIF, ELSE, ENDIF, EMPTY, DEFINE, COMMENT, ASSIGNMENT, OTHER
+    }
+
+    private final ByteBuffer source;
+    private final int limit;
+    private int position;
+    private int lineNumber;
+
+    // Current logical line (either a slice of the source or the joined continuation buffer)
+    private ByteBuffer line;
+    private int lineStart;
+    private int lineEnd;
+    private LineType type;
+
+    // Trimmed argument of a directive ("#if <argument>")
+    private int argumentStart;
+    private int argumentEnd;
+
+    // Trimmed key and value of an assignment ("<key>=<value>")
+    private int keyStart;
+    private int keyEnd;
+    private int valueEnd;
+
+    // Whitespace-separated token cursor over the value
+    private int cursor;
+    private int tokenStart;
+    private int tokenEnd;
+
+    // Scratch storage for joined continuation lines and String materialization
+    private byte[] joined = new byte[256];
+    private ByteBuffer joinedBuffer = ByteBuffer.wrap(joined);
+    private byte[] scratch = new byte[128];
+
+    // Physical lines that make up a joined continuation line: offset in the joined buffer and line number
+    private int[] segmentOffsets = new int[8];
+    private int[] segmentLines = new int[8];
+    private int segmentCount;
+    private int segment;
+
+    // Physical line bounds, trimmed
+    private int physicalStart;
+    private int physicalEnd;
+
+    BlockPropertiesTokenizer(ByteBuffer source) {
+        this(source, source.position(), 0);
+    }
+
+    /**
+     * Tokenizer that starts at a line boundary inside the buffer, numbering lines after the given number of preceding lines
+     */
+    BlockPropertiesTokenizer(ByteBuffer source, int position, int linesBefore) {
+        this.source = source;
+        this.position = position;
+        this.limit = source.limit();
+        this.lineNumber = linesBefore;
+    }
+
+    /**
+     * Advances to the next logical line, joining backslash continuations.
+     * Returns false at end of input.
+     */
+    boolean nextLine() {
+        if (position >= limit) {
+            return false;
+        }
+
+        readPhysicalLine();
+        line = source;
+        lineStart = physicalStart;
+        lineEnd = physicalEnd;
+        segmentCount = 0;
+        segment = 0;
+
+        // Handle line continuation (backslash at end)
+        if (endsWithBackslash()) {
+            int length = 0;
+            boolean endOfInput = false;
+
+            while (endsWithBackslash()) {
+                // Remove the trailing backslash, then only append non-empty content (skip lines that are just "\")
+                int end = trimEnd(source, physicalStart, physicalEnd - 1);
+                if (end > physicalStart) {
+                    length = appendJoined(length, physicalStart, end);
+                }
+
+                if (position >= limit) {
+                    endOfInput = true;
+                    break;
+                }
+                readPhysicalLine();
+            }
+
+            // Append the final line (without backslash)
+            if (!endOfInput && physicalEnd > physicalStart) {
+                length = appendJoined(length, physicalStart, physicalEnd);
+            }
+
+            line = joinedBuffer;
+            lineStart = 0;
+            lineEnd = length;
+            // Keep lineNumber at current position (end of continuation), not start line
+        }
+
+        classify();
+        return true;
+    }
+
+    /**
+     * Reads one physical line (terminated by \n, \r or \r\n) and trims it
+     */
+    private void readPhysicalLine() {
+        int start = position;
+        int end = start;
+        while (end < limit) {
+            byte b = source.get(end);
+            if (b == '\n' || b == '\r') {
+                break;
+            }
+            end++;
+        }
+
+        position = end;
+        if (position < limit) {
+            if (source.get(position) == '\r' && position + 1 < limit && source.get(position + 1) == '\n') {
+                position += 2;
+            } else {
+                position++;
+            }
+        }
+
+        lineNumber++;
+        physicalStart = trimStart(source, start, end);
+        physicalEnd = trimEnd(source, physicalStart, end);
+    }
+
+    private boolean endsWithBackslash() {
+        return physicalEnd > physicalStart && source.get(physicalEnd - 1) == '\\';
+    }
+
+    private int appendJoined(int length, int start, int end) {
+        if (segmentCount == segmentOffsets.length) {
+            segmentOffsets = Arrays.copyOf(segmentOffsets, segmentCount * 2);
+            segmentLines = Arrays.copyOf(segmentLines, segmentCount * 2);
+        }
+        segmentOffsets[segmentCount] = length + (length > 0 ? 1 : 0);
+        segmentLines[segmentCount] = lineNumber;
+        segmentCount++;
+
+        int needed = length + (length > 0 ? 1 : 0) + (end - start);
+        if (needed > joined.length) {
+            byte[] grown = new byte[Math.max(needed, joined.length * 2)];
+            System.arraycopy(joined, 0, grown, 0, length);
+            joined = grown;
+            joinedBuffer = ByteBuffer.wrap(joined);
+        }
+
+        if (length > 0) {
+            joined[length++] = ' ';
+        }
+        for (int i = start; i < end; i++) {
+            joined[length++] = source.get(i);
+        }
+        return length;
+    }
+
+    /**
+     * Determines the line type and the offsets of its argument or key/value
+     */
+    private void classify() {
+        if (startsWith(IFDEF)) {
+            type = LineType.IFDEF;
+            setArgument(IFDEF.length);
+        } else if (startsWith(IFNDEF)) {
+            type = LineType.IFNDEF;
+            setArgument(IFNDEF.length);
+        } else if (startsWith(IF)) {
+            type = LineType.IF;
+            setArgument(IF.length);
+        } else if (startsWith(ELIF)) {
+            type = LineType.ELIF;
+            setArgument(ELIF.length);
+        } else if (startsWith(ELSE)) {
+            type = LineType.ELSE;
+        } else if (startsWith(ENDIF)) {
+            type = LineType.ENDIF;
+        } else if (lineEnd == lineStart) {
+            type = LineType.EMPTY;
+        } else if (startsWith(DEFINE)) {
+            type = LineType.DEFINE;
+            setArgument(DEFINE.length);
+        } else if (line.get(lineStart) == '#') {
+            type = LineType.COMMENT;
+        } else {
+            int equals = indexOf('=', lineStart, lineEnd);
+            if (equals < 0) {
+                type = LineType.OTHER;
+            } else {
+                type = LineType.ASSIGNMENT;
+                keyStart = lineStart;
+                keyEnd = trimEnd(line, keyStart, equals);
+                int valueStart = trimStart(line, equals + 1, lineEnd);
+                valueEnd = trimEnd(line, valueStart, lineEnd);
+                cursor = valueStart;
+            }
+        }
+    }
+
+    private void setArgument(int prefixLength) {
+        argumentStart = trimStart(line, lineStart + prefixLength, lineEnd);
+        argumentEnd = lineEnd;
+    }
+
+    /**
+     * Advances to the next whitespace-separated token of the assignment value.
+     * Returns false when the value is exhausted.
+     */
+    boolean nextValueToken() {
+        int i = trimStart(line, cursor, valueEnd);
+        if (i >= valueEnd) {
+            cursor = valueEnd;
+            return false;
+        }
+
+        int end = i;
+        while (end < valueEnd && !isWhitespace(line.get(end))) {
+            end++;
+        }
+
+        tokenStart = i;
+        tokenEnd = end;
+        cursor = end;
+        return true;
+    }
+
+    // Accessors for the current line
+
+    /**
+     * Offset in the source just past the current logical line (where the next one starts)
+     */
+    int position() {
+        return position;
+    }
+
+    LineType type() {
+        return type;
+    }
+
+    int lineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Physical line number of the current value token (differs from {@link #lineNumber()} inside continuation lines)
+     */
+    int tokenLineNumber() {
+        if (segmentCount == 0) {
+            return lineNumber;
+        }
+        if (segmentOffsets[segment] > tokenStart) {
+            segment = 0;
+        }
+        while (segment + 1 < segmentCount && segmentOffsets[segment + 1] <= tokenStart) {
+            segment++;
+        }
+        return segmentLines[segment];
+    }
+
+    int lineStart() {
+        return lineStart;
+    }
+
+    int lineEnd() {
+        return lineEnd;
+    }
+
+    int argumentStart() {
+        return argumentStart;
+    }
+
+    int argumentEnd() {
+        return argumentEnd;
+    }
+
+    int keyStart() {
+        return keyStart;
+    }
+
+    int keyEnd() {
+        return keyEnd;
+    }
+
+    int tokenStart() {
+        return tokenStart;
+    }
+
+    int tokenEnd() {
+        return tokenEnd;
+    }
+
+    byte byteAt(int index) {
+        return line.get(index);
+    }
+
+    // Region helpers (offsets are always relative to the current line buffer)
+
+    boolean regionStartsWith(int start, int end, byte[] prefix) {
+        if (end - start < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (line.get(start + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean regionEquals(int start, int end, byte[] other) {
+        return end - start == other.length && regionStartsWith(start, end, other);
+    }
+
+    int indexOf(char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (line.get(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Computes the same hash as {@link String#hashCode()} would for the (ASCII) region
+     */
+    int regionHash(int start, int end) {
+        return regionHash(null, start, end);
+    }
+
+    /**
+     * Hash of the bytes of an optional ASCII prefix followed by the region, in the same form as {@link #regionHash(int, int)}
+     */
+    int regionHash(byte[] prefix, int start, int end) {
+        int hash = 0;
+        if (prefix != null) {
+            for (byte b : prefix) {
+                hash = 31 * hash + (b & 0xFF);
+            }
+        }
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + (line.get(i) & 0xFF);
+        }
+        return hash;
+    }
+
+    /**
+     * Whether an optional prefix followed by the region equals the given bytes
+     */
+    boolean regionEquals(byte[] prefix, int start, int end, byte[] other) {
+        int prefixLength = prefix != null ? prefix.length : 0;
+        if (prefixLength + (end - start) != other.length) {
+            return false;
+        }
+        for (int i = 0; i < prefixLength; i++) {
+            if (prefix[i] != other[i]) {
+                return false;
+            }
+        }
+        for (int i = start; i < end; i++) {
+            if (line.get(i) != other[prefixLength + i - start]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses a decimal int from the region, returning {@link #NOT_AN_INT} if it is not a valid int
+     */
+    long parseInt(int start, int end) {
+        if (start >= end) {
+            return NOT_AN_INT;
+        }
+
+        boolean negative = false;
+        int i = start;
+        byte first = line.get(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++i == end) {
+                return NOT_AN_INT;
+            }
+        }
+
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = line.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return NOT_AN_INT;
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                return NOT_AN_INT;
+            }
+        }
+
+        value = negative ? -value : value;
+        return value > Integer.MAX_VALUE ? NOT_AN_INT : value;
+    }
+
+    /**
+     * Materializes the region as a String
+     */
+    String string(int start, int end) {
+        return string(null, start, end);
+    }
+
+    /**
+     * Materializes the region as a String with an optional ASCII prefix, in a single allocation
+     */
+    String string(byte[] prefix, int start, int end) {
+        int prefixLength = prefix != null ? prefix.length : 0;
+        int length = prefixLength + (end - start);
+        if (prefixLength == 0 && line.hasArray()) {
+            return new String(line.array(), line.arrayOffset() + start, end - start, StandardCharsets.UTF_8);
+        }
+
+        if (length > scratch.length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        if (prefixLength > 0) {
+            System.arraycopy(prefix, 0, scratch, 0, prefixLength);
+        }
+        for (int i = start; i < end; i++) {
+            scratch[prefixLength + i - start] = line.get(i);
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private boolean startsWith(byte[] prefix) {
+        return regionStartsWith(lineStart, lineEnd, prefix);
+    }
+
+    static boolean isWhitespace(byte b) {
+        // Matches String.trim(): every control character and space (bytes >= 0x80 are UTF-8 content)
+        return b >= 0 && b <= ' ';
+    }
+
+    static boolean isWordChar(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '_';
+    }
+
+    private static int trimStart(ByteBuffer buffer, int start, int end) {
+        while (start < end && isWhitespace(buffer.get(start))) {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(ByteBuffer buffer, int start, int end) {
+        while (end > start && isWhitespace(buffer.get(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+
+    static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
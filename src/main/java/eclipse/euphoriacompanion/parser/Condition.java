@@ -0,0 +1,12 @@
+package eclipse.euphoriacompanion.parser;
+
+/**
+ * A compiled #if / #elif expression.
+ */
+interface Condition {
+
+    /**
+     * Evaluates the condition against the given preprocessor environment
+     */
+    boolean test(PreprocessorEnvironment environment);
+}
@@ -0,0 +1,75 @@
+package eclipse.euphoriacompanion.parser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Memoizes compiled #if / #elif expressions by their text, so each distinct condition is compiled once.
+ * Lookups compare the raw expression bytes in the tokenizer buffer and never allocate on a hit.
+ * Reads are lock-free; inserts copy the table, which is fine since distinct expressions are few.
+ */
+final class ConditionCache {
+    private static final int MAX_ENTRIES = 4096;
+
+    private volatile Entry[] table = new Entry[256];
+    private int size;
+
+    /**
+     * Result of a lookup: the compiled condition, or null when the expression is unsupported
+     */
+    record Entry(byte[] text, int hash, Condition condition, Entry next) {
+        boolean supported() {
+            return condition != null;
+        }
+    }
+
+    /**
+     * Returns the cached entry for the expression in the given tokenizer region, compiling it on a miss
+     */
+    Entry get(BlockPropertiesTokenizer tokens, int start, int end) {
+        int hash = tokens.regionHash(start, end);
+        Entry[] current = table;
+        for (Entry entry = current[hash & (current.length - 1)]; entry != null; entry = entry.next()) {
+            if (entry.hash() == hash && tokens.regionEquals(start, end, entry.text())) {
+                return entry;
+            }
+        }
+
+        String expression = tokens.string(start, end);
+        Entry compiled = new Entry(expression.getBytes(StandardCharsets.UTF_8), hash,
+            ConditionCompiler.compile(expression), null);
+        return insert(compiled);
+    }
+
+    private synchronized Entry insert(Entry entry) {
+        Entry[] current = table;
+
+        // Another thread may have compiled the same expression meanwhile
+        for (Entry existing = current[entry.hash() & (current.length - 1)]; existing != null; existing = existing.next()) {
+            if (existing.hash() == entry.hash() && Arrays.equals(existing.text(), entry.text())) {
+                return existing;
+            }
+        }
+
+        if (size >= MAX_ENTRIES) {
+            return entry; // Pathological input, stop growing and just hand back the compiled condition
+        }
+
+        int capacity = size + 1 > current.length * 3 / 4 ? current.length * 2 : current.length;
+        Entry[] copy = new Entry[capacity];
+        for (Entry head : current) {
+            for (Entry existing = head; existing != null; existing = existing.next()) {
+                int index = existing.hash() & (capacity - 1);
+                copy[index] = new Entry(existing.text(), existing.hash(), existing.condition(), copy[index]);
+            }
+        }
+
+        int index = entry.hash() & (capacity - 1);
+        Entry inserted = new Entry(entry.text(), entry.hash(), entry.condition(), copy[index]);
+        copy[index] = inserted;
+
+        size++;
+        table = copy;
+        return inserted;
+    }
+}
@@ -0,0 +1,290 @@
+package eclipse.euphoriacompanion.parser;
+
+import eclipse.euphoriacompanion.parser.PreprocessorEnvironment.Symbol;
+import eclipse.euphoriacompanion.parser.PreprocessorEnvironment.Variable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiles #if / #elif expressions into a predicate tree that can be evaluated without allocating.
+ * <p>
+ * Grammar (lowest to highest precedence):
+ * <pre>
+ * or      := and ("||" and)*
+ * and     := unary ("&&" unary)*
+ * unary   := "!" unary | primary
+ * primary := "(" or ")" | "defined" ( "(" NAME ")" | NAME ) | operand [ op operand ]
+ * operand := NUMBER | VARIABLE
+ * op      := "==" | "!=" | "<" | ">" | "<=" | ">="
+ * </pre>
+ * Unknown symbols in {@code defined} are never defined. Unknown variables, malformed syntax and
+ * out-of-range numbers make the whole expression unsupported ({@link #compile} returns null).
+ */
+final class ConditionCompiler {
+    private final String expression;
+    private int position;
+
+    private ConditionCompiler(String expression) {
+        this.expression = expression;
+    }
+
+    /**
+     * Compiles an expression, returning null if it is not supported
+     */
+    static Condition compile(String expression) {
+        ConditionCompiler compiler = new ConditionCompiler(expression);
+        Condition condition = compiler.parseOr();
+        if (condition == null || compiler.skipSpaces() < expression.length()) {
+            return null;
+        }
+        return condition;
+    }
+
+    private Condition parseOr() {
+        List<Condition> operands = new ArrayList<>();
+        do {
+            Condition operand = parseAnd();
+            if (operand == null) {
+                return null;
+            }
+            operands.add(operand);
+        } while (accept("||"));
+
+        return operands.size() == 1 ? operands.get(0) : new Or(operands.toArray(new Condition[0]));
+    }
+
+    private Condition parseAnd() {
+        List<Condition> operands = new ArrayList<>();
+        do {
+            Condition operand = parseUnary();
+            if (operand == null) {
+                return null;
+            }
+            operands.add(operand);
+        } while (accept("&&"));
+
+        return operands.size() == 1 ? operands.get(0) : new And(operands.toArray(new Condition[0]));
+    }
+
+    private Condition parseUnary() {
+        skipSpaces();
+        if (peek('!') && !lookingAt("!=")) {
+            position++;
+            Condition operand = parseUnary();
+            return operand != null ? new Not(operand) : null;
+        }
+        return parsePrimary();
+    }
+
+    private Condition parsePrimary() {
+        if (accept("(")) {
+            Condition inner = parseOr();
+            return inner != null && accept(")") ? inner : null;
+        }
+
+        int start = skipSpaces();
+        String name = readName();
+        if ("defined".equals(name)) {
+            return parseDefined();
+        }
+
+        position = start;
+        Operand left = parseOperand();
+        if (left == null) {
+            return null;
+        }
+
+        Operator operator = parseOperator();
+        if (operator == null) {
+            // Bare value: true if non-zero (e.g. "#if 0")
+            return new Truthy(left);
+        }
+
+        Operand right = parseOperand();
+        return right != null ? new Compare(left, operator, right) : null;
+    }
+
+    private Condition parseDefined() {
+        boolean parenthesized = accept("(");
+        skipSpaces();
+        String symbolName = readName();
+        if (symbolName == null || (parenthesized && !accept(")"))) {
+            return null;
+        }
+
+        for (Symbol symbol : Symbol.values()) {
+            if (symbol.name().equals(symbolName)) {
+                return new Defined(symbol);
+            }
+        }
+        return Constant.FALSE; // Unknown symbols are not defined
+    }
+
+    private Operand parseOperand() {
+        skipSpaces();
+        int start = position;
+        while (position < expression.length() && expression.charAt(position) >= '0' && expression.charAt(position) <= '9') {
+            position++;
+        }
+        if (position > start) {
+            try {
+                return new Operand(null, Integer.parseInt(expression.substring(start, position)));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        String name = readName();
+        if (name == null) {
+            return null;
+        }
+        for (Variable variable : Variable.values()) {
+            if (variable.name().equals(name)) {
+                return new Operand(variable, 0);
+            }
+        }
+        return null; // Unknown variable
+    }
+
+    private Operator parseOperator() {
+        skipSpaces();
+        for (Operator operator : Operator.values()) {
+            if (lookingAt(operator.symbol)) {
+                position += operator.symbol.length();
+                return operator;
+            }
+        }
+        return null;
+    }
+
+    private String readName() {
+        int start = position;
+        while (position < expression.length() && isWordChar(expression.charAt(position))) {
+            position++;
+        }
+        return position > start ? expression.substring(start, position) : null;
+    }
+
+    private boolean accept(String token) {
+        skipSpaces();
+        if (lookingAt(token)) {
+            position += token.length();
+            return true;
+        }
+        return false;
+    }
+
+    private boolean peek(char c) {
+        return position < expression.length() && expression.charAt(position) == c;
+    }
+
+    private boolean lookingAt(String token) {
+        return expression.startsWith(token, position);
+    }
+
+    private int skipSpaces() {
+        while (position < expression.length() && Character.isWhitespace(expression.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private static boolean isWordChar(char c) {
+        return c < 0x80 && BlockPropertiesTokenizer.isWordChar((byte) c);
+    }
+
+    /**
+     * Comparison operators, longest symbols first so "<=" is not read as "<"
+     */
+    private enum Operator {
+        EQ("=="), NE("!="), LE("<="), GE(">="), LT("<"), GT(">");
+
+        private final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        boolean apply(int left, int right) {
+            return switch (this) {
+                case EQ -> left == right;
+                case NE -> left != right;
+                case LE -> left <= right;
+                case GE -> left >= right;
+                case LT -> left < right;
+                case GT -> left > right;
+            };
+        }
+    }
+
+    /**
+     * Either a variable or an integer constant
+     */
+    private record Operand(Variable variable, int constant) {
+        int value(PreprocessorEnvironment environment) {
+            return variable != null ? environment.valueOf(variable) : constant;
+        }
+    }
+
+    private enum Constant implements Condition {
+        FALSE;
+
+        @Override
+        public boolean test(PreprocessorEnvironment environment) {
+            return false;
+        }
+    }
+
+    private record Defined(Symbol symbol) implements Condition {
+        @Override
+        public boolean test(PreprocessorEnvironment environment) {
+            return environment.isDefined(symbol);
+        }
+    }
+
+    private record Not(Condition operand) implements Condition {
+        @Override
+        public boolean test(PreprocessorEnvironment environment) {
+            return !operand.test(environment);
+        }
+    }
+
+    private record And(Condition[] operands) implements Condition {
+        @Override
+        public boolean test(PreprocessorEnvironment environment) {
+            for (Condition operand : operands) {
+                if (!operand.test(environment)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private record Or(Condition[] operands) implements Condition {
+        @Override
+        public boolean test(PreprocessorEnvironment environment) {
+            for (Condition operand : operands) {
+                if (operand.test(environment)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private record Compare(Operand left, Operator operator, Operand right) implements Condition {
+        @Override
+        public boolean test(PreprocessorEnvironment environment) {
+            return operator.apply(left.value(environment), right.value(environment));
+        }
+    }
+
+    private record Truthy(Operand operand) implements Condition {
+        @Override
+        public boolean test(PreprocessorEnvironment environment) {
+            return operand.value(environment) != 0;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package eclipse.euphoriacompanion.parser;
+
+import java.util.Arrays;
+
+/**
+ * Stack of open #if / #ifdef / #elif / #else frames.
+ * Each frame holds bitmasks over the preprocessor environments being parsed (bit i = environment i).
+ * A frame's active mask already includes its parents, so checking whether the current line is live
+ * is constant time regardless of nesting depth.
+ */
+final class ConditionalStack {
+    private final long allEnvironments;
+
+    private boolean[] supported = new boolean[16];  // The directive could be evaluated
+    private long[] active = new long[16];           // Environments where lines in this branch are processed
+    private long[] taken = new long[16];            // Environments where a supported branch of this chain already evaluated true
+    private int depth;
+
+    ConditionalStack(long allEnvironments) {
+        this.allEnvironments = allEnvironments;
+    }
+
+    /**
+     * Environments in which lines at the current position are processed
+     */
+    long liveMask() {
+        return depth == 0 ? allEnvironments : active[depth - 1];
+    }
+
+    boolean isEmpty() {
+        return depth == 0;
+    }
+
+    int size() {
+        return depth;
+    }
+
+    void push(boolean supported, long active, long taken) {
+        if (depth == this.active.length) {
+            int capacity = depth * 2;
+            this.supported = Arrays.copyOf(this.supported, capacity);
+            this.active = Arrays.copyOf(this.active, capacity);
+            this.taken = Arrays.copyOf(this.taken, capacity);
+        }
+
+        this.supported[depth] = supported;
+        this.active[depth] = active;
+        this.taken[depth] = taken;
+        depth++;
+    }
+
+    void pop() {
+        depth--;
+    }
+
+    /**
+     * Independent copy of the current frames, e.g. to remember the state a line was parsed in
+     */
+    ConditionalStack copy() {
+        ConditionalStack copy = new ConditionalStack(allEnvironments);
+        copy.supported = Arrays.copyOf(supported, Math.max(depth, 1));
+        copy.active = Arrays.copyOf(active, Math.max(depth, 1));
+        copy.taken = Arrays.copyOf(taken, Math.max(depth, 1));
+        copy.depth = depth;
+        return copy;
+    }
+
+    /**
+     * Whether both stacks hold the same frames, so parsing continues identically from either
+     */
+    boolean sameState(ConditionalStack other) {
+        if (depth != other.depth || allEnvironments != other.allEnvironments) {
+            return false;
+        }
+        for (int i = 0; i < depth; i++) {
+            if (supported[i] != other.supported[i] || active[i] != other.active[i] || taken[i] != other.taken[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Flags of the innermost frame
+
+    boolean supported() {
+        return supported[depth - 1];
+    }
+
+    long taken() {
+        return taken[depth - 1];
+    }
+}
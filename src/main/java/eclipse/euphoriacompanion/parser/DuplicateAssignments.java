@@ -0,0 +1,70 @@
+package eclipse.euphoriacompanion.parser;
+
+import java.util.Arrays;
+
+/**
+ * All assignments of a block ID that was assigned more than once, in file order:
+ * the block.XX property ID and the source line of each assignment.
+ */
+public final class DuplicateAssignments {
+    private int[] propertyIds = new int[4];
+    private int[] lines = new int[4];
+    private int size;
+
+    // Distinct property IDs, kept up to date by add: in first-assignment order, and sorted for lookups
+    private int[] distinctIds = new int[2];
+    private int[] sortedDistinctIds = new int[2];
+    private int distinctCount;
+
+    void add(int propertyId, int line) {
+        if (size == propertyIds.length) {
+            propertyIds = Arrays.copyOf(propertyIds, size * 2);
+            lines = Arrays.copyOf(lines, size * 2);
+        }
+        propertyIds[size] = propertyId;
+        lines[size] = line;
+        size++;
+
+        int index = Arrays.binarySearch(sortedDistinctIds, 0, distinctCount, propertyId);
+        if (index < 0) {
+            if (distinctCount == distinctIds.length) {
+                distinctIds = Arrays.copyOf(distinctIds, distinctCount * 2);
+                sortedDistinctIds = Arrays.copyOf(sortedDistinctIds, distinctCount * 2);
+            }
+            int insertAt = -index - 1;
+            System.arraycopy(sortedDistinctIds, insertAt, sortedDistinctIds, insertAt + 1, distinctCount - insertAt);
+            sortedDistinctIds[insertAt] = propertyId;
+            distinctIds[distinctCount++] = propertyId;
+        }
+    }
+
+    void shiftLines(int afterLine, int delta) {
+        for (int i = 0; i < size; i++) {
+            if (lines[i] > afterLine) {
+                lines[i] += delta;
+            }
+        }
+    }
+
+    /**
+     * Number of assignments (including the first one)
+     */
+    public int size() {
+        return size;
+    }
+
+    public int propertyId(int index) {
+        return propertyIds[index];
+    }
+
+    public int line(int index) {
+        return lines[index];
+    }
+
+    /**
+     * Distinct property IDs the block was assigned to, in order of first assignment
+     */
+    public int[] distinctPropertyIds() {
+        return Arrays.copyOf(distinctIds, distinctCount);
+    }
+}
@@ -0,0 +1,509 @@
+package eclipse.euphoriacompanion.parser;
+
+import eclipse.euphoriacompanion.EuphoriaCompanion;
+import eclipse.euphoriacompanion.config.ModConfig;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Keeps the parse of one block.properties file up to date while it is being edited.
+ * Every logical line is remembered with its byte range, the conditional state it was parsed in and the
+ * assignments it contributed. An update diffs the new content against the previous one, re-parses only the
+ * changed lines (plus following lines until the conditional state matches the previous parse again) and
+ * patches the result in place. Edits touching #define lines fall back to a full parse, since tag definitions
+ * decide how every later token is read.
+ * Works on a single preprocessor environment.
+ */
+public final class IncrementalBlockPropertiesParser {
+    private static final int SUFFIX_CHUNK = 4096;
+
+    private final ModConfig config;
+    private final boolean tagSupport;
+    private final TrackingResult result;
+    private BlockPropertiesParser parser;
+
+    private byte[] source;  // Content of the last update, null before the first one
+    private final List<Line> lines = new ArrayList<>();
+
+    // Contributions of all lines per key, in file order
+    private final Int2ObjectOpenHashMap<List<Contribution>> blockContributions = new Int2ObjectOpenHashMap<>();
+    private final Int2ObjectOpenHashMap<List<Contribution>> layerContributions = new Int2ObjectOpenHashMap<>();
+    private final Map<String, List<Contribution>> tagContributions = new HashMap<>();
+    private final Map<String, Line> tagDefinedAt = new HashMap<>();  // First live #define of each tag identifier
+
+    private Line current;        // Line being parsed
+    private boolean applying;    // Full parse: contributions go straight into the result
+    private int regionStart;     // Incremental parse: index of the first re-parsed line
+    private int lastReparsedLines;
+
+    public IncrementalBlockPropertiesParser(ModConfig config, PreprocessorEnvironment environment, SymbolTable symbols) {
+        this.config = config;
+        this.tagSupport = config.isTagSupportEnabled();
+        this.result = new TrackingResult(environment, symbols);
+    }
+
+    public PreprocessorEnvironment getEnvironment() {
+        return result.getEnvironment();
+    }
+
+    /**
+     * Whether tag support was enabled when this parser was created (it decides how #define lines are read)
+     */
+    public boolean isTagSupport() {
+        return tagSupport;
+    }
+
+    public BlockPropertiesResult getResult() {
+        return result;
+    }
+
+    /**
+     * Number of logical lines parsed by the last update
+     */
+    public int getLastReparsedLines() {
+        return lastReparsedLines;
+    }
+
+    /**
+     * Brings the result up to date with the given file content, re-parsing only what changed since the previous update.
+     * The array is kept for the next diff and must not be modified afterwards.
+     */
+    public BlockPropertiesResult update(byte[] content) {
+        if (source == null) {
+            parseFully(content);
+            return result;
+        }
+
+        int prefix = Arrays.mismatch(source, content);
+        if (prefix < 0) {
+            lastReparsedLines = 0;
+            return result;
+        }
+
+        int suffix = commonSuffix(source, content, Math.min(source.length, content.length) - prefix);
+        if (lines.isEmpty() || !reparseRegion(content, prefix, suffix)) {
+            parseFully(content);
+        }
+        return result;
+    }
+
+    /**
+     * Parses the whole file, rebuilding the result and the line records from scratch
+     */
+    private void parseFully(byte[] content) {
+        result.clear();
+        lines.clear();
+        blockContributions.clear();
+        layerContributions.clear();
+        tagContributions.clear();
+        tagDefinedAt.clear();
+        parser = new BlockPropertiesParser(config, result);  // Fresh tag identifier filter
+        applying = true;
+
+        BlockPropertiesTokenizer tokens = new BlockPropertiesTokenizer(ByteBuffer.wrap(content));
+        ConditionalStack stack = parser.newConditionalStack();
+        ConditionalStack state = stack.copy();
+        int offset = tokens.position();
+        int linesBefore = tokens.lineNumber();
+
+        while (tokens.nextLine()) {
+            current = new Line(lines.size(), offset, linesBefore, state, tokens.type());
+            lines.add(current);
+            parser.processLine(tokens, stack);
+            if (isConditional(tokens.type())) {
+                state = stack.copy();
+            }
+            offset = tokens.position();
+            linesBefore = tokens.lineNumber();
+        }
+
+        BlockPropertiesParser.warnUnmatched(stack);
+        current = null;
+        applying = false;
+        source = content;
+        lastReparsedLines = lines.size();
+
+        EuphoriaCompanion.LOGGER.info("Parsed {} direct block assignments and {} tag definitions",
+            result.getBlockSymbols().size(), result.getTagDefinitions().size());
+    }
+
+    /**
+     * Re-parses the lines around the changed bytes and patches the result.
+     * Returns false if the edit needs a full parse instead.
+     */
+    private boolean reparseRegion(byte[] content, int prefix, int suffix) {
+        int delta = content.length - source.length;
+        int changedEnd = content.length - suffix;
+
+        // Start one byte early so a line terminator changing from \r to \r\n re-reads the line it ends
+        int first = lineContaining(Math.max(prefix - 1, 0));
+        Line start = lines.get(first);
+
+        BlockPropertiesTokenizer tokens = new BlockPropertiesTokenizer(ByteBuffer.wrap(content), start.start, start.linesBefore);
+        ConditionalStack stack = start.state.copy();
+        ConditionalStack state = start.state;
+        List<Line> added = new ArrayList<>();
+        int sync = lines.size();
+        regionStart = first;
+
+        // Parse until past the change, at a line that also started a line before the edit and sees the same conditionals
+        while (true) {
+            int offset = tokens.position();
+            if (offset >= changedEnd) {
+                int oldIndex = lineStartingAt(offset - delta);
+                if (oldIndex >= 0 && lines.get(oldIndex).state.sameState(stack)) {
+                    sync = oldIndex;
+                    break;
+                }
+            }
+
+            int linesBefore = tokens.lineNumber();
+            if (!tokens.nextLine()) {
+                break;
+            }
+            if (tokens.type() == BlockPropertiesTokenizer.LineType.DEFINE) {
+                return false;
+            }
+
+            current = new Line(first + added.size(), offset, linesBefore, state, tokens.type());
+            added.add(current);
+            parser.processLine(tokens, stack);
+            if (isConditional(tokens.type())) {
+                state = stack.copy();
+            }
+        }
+        current = null;
+
+        List<Line> removed = lines.subList(first, sync);
+        for (Line line : removed) {
+            if (line.type == BlockPropertiesTokenizer.LineType.DEFINE) {
+                return false;
+            }
+        }
+        if (sync == lines.size()) {
+            BlockPropertiesParser.warnUnmatched(stack);
+        }
+
+        // Lines after the edit keep their contributions but move by the change in bytes and physical lines
+        int lineDelta = 0;
+        if (sync < lines.size()) {
+            lineDelta = tokens.lineNumber() - lines.get(sync).linesBefore;
+            if (lineDelta != 0) {
+                result.shiftLines(lines.get(sync).linesBefore, lineDelta);
+            }
+        }
+
+        IntSet dirtyBlocks = new IntOpenHashSet();
+        IntSet dirtyLayers = new IntOpenHashSet();
+        boolean dirtyTags = false;
+
+        for (Line line : removed) {
+            for (Contribution contribution : line.contributions()) {
+                contributionsOf(contribution).remove(contribution);
+                dirtyTags |= markDirty(contribution, dirtyBlocks, dirtyLayers);
+            }
+        }
+        removed.clear();
+        lines.addAll(first, added);
+
+        for (int i = first; i < lines.size(); i++) {
+            Line line = lines.get(i);
+            line.index = i;
+            if (i >= first + added.size()) {
+                line.start += delta;
+                line.linesBefore += lineDelta;
+            }
+        }
+
+        for (Line line : added) {
+            for (Contribution contribution : line.contributions()) {
+                insertInFileOrder(contributionsOf(contribution), contribution);
+                dirtyTags |= markDirty(contribution, dirtyBlocks, dirtyLayers);
+            }
+        }
+
+        refreshBlocks(dirtyBlocks);
+        refreshLayers(dirtyLayers);
+        if (dirtyTags) {
+            refreshTags();
+        }
+
+        source = content;
+        lastReparsedLines = added.size();
+        EuphoriaCompanion.LOGGER.debug("Re-parsed {} of {} lines, starting at line {}", added.size(), lines.size(), start.linesBefore + 1);
+        return true;
+    }
+
+    /**
+     * Length of the common suffix of both arrays, at most max bytes. Compares in chunks so the bulk of an
+     * unchanged file is checked with the vectorized {@link Arrays#mismatch}.
+     */
+    private static int commonSuffix(byte[] a, byte[] b, int max) {
+        int suffix = 0;
+        while (suffix < max) {
+            int chunk = Math.min(SUFFIX_CHUNK, max - suffix);
+            int aEnd = a.length - suffix;
+            int bEnd = b.length - suffix;
+            if (Arrays.mismatch(a, aEnd - chunk, aEnd, b, bEnd - chunk, bEnd) < 0) {
+                suffix += chunk;
+                continue;
+            }
+
+            // Mismatch inside this chunk: find it from the end
+            while (a[a.length - 1 - suffix] == b[b.length - 1 - suffix]) {
+                suffix++;
+            }
+            break;
+        }
+        return suffix;
+    }
+
+    private static boolean isConditional(BlockPropertiesTokenizer.LineType type) {
+        return switch (type) {
+            case IFDEF, IFNDEF, IF, ELIF, ELSE, ENDIF -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Index of the last line starting at or before the given offset
+     */
+    private int lineContaining(int offset) {
+        int low = 0;
+        int high = lines.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (lines.get(mid).start <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Index of the line starting exactly at the given offset, or -1
+     */
+    private int lineStartingAt(int offset) {
+        int index = lineContaining(offset);
+        return lines.get(index).start == offset ? index : -1;
+    }
+
+    private List<Contribution> contributionsOf(Contribution contribution) {
+        return switch (contribution.kind) {
+            case Contribution.BLOCK -> blockContributions.computeIfAbsent(contribution.symbol, symbol -> new ArrayList<>(1));
+            case Contribution.LAYER -> layerContributions.computeIfAbsent(contribution.symbol, symbol -> new ArrayList<>(1));
+            default -> tagContributions.computeIfAbsent(contribution.name, name -> new ArrayList<>(1));
+        };
+    }
+
+    /**
+     * Marks the key of a contribution for refreshing, returning true for tag contributions
+     */
+    private static boolean markDirty(Contribution contribution, IntSet dirtyBlocks, IntSet dirtyLayers) {
+        switch (contribution.kind) {
+            case Contribution.BLOCK -> dirtyBlocks.add(contribution.symbol);
+            case Contribution.LAYER -> dirtyLayers.add(contribution.symbol);
+            default -> {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Inserts after every contribution from the same or an earlier line, keeping same-line contributions in token order
+     */
+    private static void insertInFileOrder(List<Contribution> contributions, Contribution contribution) {
+        int index = contributions.size();
+        while (index > 0 && contributions.get(index - 1).line.index > contribution.line.index) {
+            index--;
+        }
+        contributions.add(index, contribution);
+    }
+
+    /**
+     * Recomputes each block's final assignment and duplicate history from its contributions
+     */
+    private void refreshBlocks(IntSet symbols) {
+        for (IntIterator iterator = symbols.iterator(); iterator.hasNext(); ) {
+            int symbol = iterator.nextInt();
+            List<Contribution> contributions = blockContributions.get(symbol);
+            if (contributions == null || contributions.isEmpty()) {
+                blockContributions.remove(symbol);
+                result.removeBlock(symbol);
+                continue;
+            }
+
+            DuplicateAssignments duplicates = null;
+            if (contributions.size() > 1) {
+                duplicates = new DuplicateAssignments();
+                for (Contribution contribution : contributions) {
+                    duplicates.add(contribution.propertyId, contribution.line());
+                }
+            }
+            Contribution last = contributions.get(contributions.size() - 1);
+            result.setBlock(symbol, last.propertyId, last.line(), duplicates);
+        }
+    }
+
+    private void refreshLayers(IntSet symbols) {
+        for (IntIterator iterator = symbols.iterator(); iterator.hasNext(); ) {
+            int symbol = iterator.nextInt();
+            List<Contribution> contributions = layerContributions.get(symbol);
+            if (contributions == null || contributions.isEmpty()) {
+                layerContributions.remove(symbol);
+                result.removeRenderLayer(symbol);
+            } else {
+                result.assignRenderLayerDirect(symbol, contributions.get(contributions.size() - 1).name);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the tag assignments: each tag keeps the position of its first assignment and the value of its last
+     */
+    private void refreshTags() {
+        tagContributions.values().removeIf(List::isEmpty);
+        List<List<Contribution>> ordered = new ArrayList<>(tagContributions.values());
+        ordered.sort(Comparator.comparingInt((List<Contribution> contributions) -> contributions.get(0).line.index)
+            .thenComparingInt(contributions -> contributions.get(0).ordinal));
+
+        Map<String, Integer> assignments = new LinkedHashMap<>();
+        for (List<Contribution> contributions : ordered) {
+            Contribution last = contributions.get(contributions.size() - 1);
+            assignments.put(last.name, last.propertyId);
+        }
+        result.setTagAssignments(assignments);
+    }
+
+    /**
+     * A logical line: where it starts, the conditional state before it and what it contributed to the result
+     */
+    private static final class Line {
+        int index;
+        int start;        // Byte offset of the first physical line
+        int linesBefore;  // Physical lines before this one
+        final ConditionalStack state;  // Shared by all lines between two directives, never modified
+        final BlockPropertiesTokenizer.LineType type;
+        private List<Contribution> contributions;
+
+        Line(int index, int start, int linesBefore, ConditionalStack state, BlockPropertiesTokenizer.LineType type) {
+            this.index = index;
+            this.start = start;
+            this.linesBefore = linesBefore;
+            this.state = state;
+            this.type = type;
+        }
+
+        List<Contribution> contributions() {
+            return contributions == null ? List.of() : contributions;
+        }
+
+        void add(Contribution contribution) {
+            if (contributions == null) {
+                contributions = new ArrayList<>(2);
+            }
+            contributions.add(contribution);
+        }
+    }
+
+    /**
+     * One assignment made by a line: a block ID or render layer entry (by symbol) or a tag reference (by identifier)
+     */
+    private static final class Contribution {
+        static final int BLOCK = 0;
+        static final int LAYER = 1;
+        static final int TAG = 2;
+
+        final int kind;
+        final Line line;
+        final int ordinal;     // Position among the line's contributions
+        final int symbol;
+        final String name;     // Tag identifier or layer name
+        final int propertyId;
+        final int lineOffset;  // Physical line relative to the start of the logical line
+
+        Contribution(int kind, Line line, int symbol, String name, int propertyId, int lineOffset) {
+            this.kind = kind;
+            this.line = line;
+            this.ordinal = line.contributions().size();
+            this.symbol = symbol;
+            this.name = name;
+            this.propertyId = propertyId;
+            this.lineOffset = lineOffset;
+        }
+
+        int line() {
+            return line.linesBefore + lineOffset;
+        }
+    }
+
+    /**
+     * Result that records every assignment against the line being parsed. During a full parse assignments are
+     * applied as usual; while re-parsing a region they are only recorded and merged in afterwards.
+     */
+    private final class TrackingResult extends BlockPropertiesResult {
+        TrackingResult(PreprocessorEnvironment environment, SymbolTable symbols) {
+            super(environment, symbols);
+        }
+
+        @Override
+        boolean assignBlock(int blockSymbol, int propertyId, int line) {
+            Contribution contribution = new Contribution(Contribution.BLOCK, current, blockSymbol, null, propertyId, line - current.linesBefore);
+            current.add(contribution);
+            if (!applying) {
+                return false;
+            }
+            contributionsOf(contribution).add(contribution);
+            return super.assignBlock(blockSymbol, propertyId, line);
+        }
+
+        @Override
+        void assignTag(String identifier, Integer propertyId) {
+            Contribution contribution = new Contribution(Contribution.TAG, current, SymbolTable.NONE, identifier, propertyId, 0);
+            current.add(contribution);
+            if (applying) {
+                contributionsOf(contribution).add(contribution);
+                super.assignTag(identifier, propertyId);
+            }
+        }
+
+        @Override
+        void assignRenderLayer(int blockSymbol, String layerName) {
+            Contribution contribution = new Contribution(Contribution.LAYER, current, blockSymbol, layerName, 0, 0);
+            current.add(contribution);
+            if (applying) {
+                contributionsOf(contribution).add(contribution);
+                super.assignRenderLayer(blockSymbol, layerName);
+            }
+        }
+
+        void assignRenderLayerDirect(int blockSymbol, String layerName) {
+            super.assignRenderLayer(blockSymbol, layerName);
+        }
+
+        @Override
+        boolean defineTag(String identifier, String tagName) {
+            tagDefinedAt.putIfAbsent(identifier, current);
+            return super.defineTag(identifier, tagName);
+        }
+
+        @Override
+        boolean isTagDefined(String identifier) {
+            if (applying) {
+                return super.isTagDefined(identifier);
+            }
+
+            // Re-parsed lines contain no #define, so only definitions before the region count
+            Line definedAt = tagDefinedAt.get(identifier);
+            return definedAt != null && definedAt.index < regionStart;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package eclipse.euphoriacompanion.parser;
+
+import eclipse.euphoriacompanion.EuphoriaCompanion;
+import eclipse.euphoriacompanion.config.ModConfig;
+import net.fabricmc.loader.api.FabricLoader;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches parsed block.properties results keyed by a hash of the file bytes plus the preprocessor environment,
+ * so unchanged packs skip parsing entirely on the next analysis run.
+ * Every entry and incremental parser has a {@link SymbolTable} of its own holding only its file's symbols, so the
+ * cache never keeps a run's table alive; callers copy a result into their run's table with
+ * {@link BlockPropertiesResult#withSymbols(SymbolTable)}.
+ * Entries can optionally be persisted to a file and restored in a later game session of the same mod version; a
+ * file written by another version is dropped, since parsing may have changed in between.
+ * The content hash is a fast 64-bit hash, not a cryptographic one: two different files of the same length with
+ * colliding hashes would share an entry. That is very unlikely for the handful of packs a cache holds, but it is
+ * not ruled out.
+ */
+public final class ParseCache {
+    private static final int MAX_ENTRIES = 64;
+    private static final int MAX_INCREMENTAL_PARSERS = 16;  // Each keeps a whole file and its line records
+    private static final int MAGIC = 0x45435043;  // "ECPC"
+    private static final int FORMAT_VERSION = 2;
+    private static final String MOD_ID = "euphoriacompanion";
+
+    private final Map<Key, BlockPropertiesResult> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, BlockPropertiesResult> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private final Map<Path, IncrementalBlockPropertiesParser> incrementalParsers = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, IncrementalBlockPropertiesParser> eldest) {
+            return size() > MAX_INCREMENTAL_PARSERS;
+        }
+    };
+    private boolean dirty;
+
+    /**
+     * Identifies one parse: the file content (hash and length) and everything that influences how it is parsed
+     */
+    public record Key(long contentHash, int length, PreprocessorEnvironment environment, boolean tagSupport) {
+    }
+
+    /**
+     * Builds the key for a block.properties buffer (from its position to its limit), leaving the buffer untouched
+     */
+    public static Key key(ByteBuffer content, PreprocessorEnvironment environment, boolean tagSupport) {
+        return new Key(hash(content), content.remaining(), environment, tagSupport);
+    }
+
+    public synchronized BlockPropertiesResult get(Key key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Stores a result, which must have been parsed with a symbol table of its own
+     */
+    public synchronized void put(Key key, BlockPropertiesResult result) {
+        entries.put(key, result);
+        dirty = true;
+    }
+
+    /**
+     * Incremental parser for an unpacked pack's block.properties, kept across analysis runs so edits only re-parse
+     * the changed lines. Starts over when the environment or tag support changed since the last run. Only the most
+     * recently used packs keep a parser.
+     */
+    public synchronized IncrementalBlockPropertiesParser incremental(Path file, ModConfig config, PreprocessorEnvironment environment) {
+        IncrementalBlockPropertiesParser parser = incrementalParsers.get(file);
+        if (parser == null || !parser.getEnvironment().equals(environment) || parser.isTagSupport() != config.isTagSupportEnabled()) {
+            parser = new IncrementalBlockPropertiesParser(config, environment, new SymbolTable());
+            incrementalParsers.put(file, parser);
+        }
+        return parser;
+    }
+
+    /**
+     * Restores persisted entries from a file written by {@link #save(Path)}. Missing, outdated or corrupt files are ignored.
+     */
+    public synchronized void load(Path file) {
+        if (!Files.exists(file)) {
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                EuphoriaCompanion.LOGGER.info("Ignoring parse cache with unknown format: {}", file);
+                return;
+            }
+            if (!in.readUTF().equals(modVersion())) {
+                EuphoriaCompanion.LOGGER.info("Ignoring parse cache written by another version of the mod: {}", file);
+                return;
+            }
+
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long contentHash = in.readLong();
+                int length = in.readInt();
+                PreprocessorEnvironment environment = new PreprocessorEnvironment(
+                    in.readInt(), in.readBoolean(), in.readBoolean(), in.readInt(), in.readInt());
+                boolean tagSupport = in.readBoolean();
+
+                BlockPropertiesResult result = BlockPropertiesResult.readFrom(in, environment, new SymbolTable());
+                entries.putIfAbsent(new Key(contentHash, length, environment, tagSupport), result);
+            }
+            EuphoriaCompanion.LOGGER.info("Loaded {} cached block.properties parse(s) from {}", count, file);
+        } catch (IOException | RuntimeException e) {
+            EuphoriaCompanion.LOGGER.warn("Failed to load parse cache from {}, ignoring it", file, e);
+        }
+    }
+
+    /**
+     * Writes all entries to a file if anything changed since the last load or save
+     */
+    public synchronized void save(Path file) {
+        if (!dirty) {
+            return;
+        }
+
+        try {
+            Files.createDirectories(file.getParent());
+            Path tempPath = file.resolveSibling(file.getFileName() + ".tmp");
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(modVersion());
+                out.writeInt(entries.size());
+
+                for (Map.Entry<Key, BlockPropertiesResult> entry : entries.entrySet()) {
+                    Key key = entry.getKey();
+                    PreprocessorEnvironment environment = key.environment();
+                    out.writeLong(key.contentHash());
+                    out.writeInt(key.length());
+                    out.writeInt(environment.mcVersion());
+                    out.writeBoolean(environment.irisLoaded());
+                    out.writeBoolean(environment.oculusLoaded());
+                    out.writeInt(environment.oculusVersion());
+                    out.writeInt(environment.irisTagSupport());
+                    out.writeBoolean(key.tagSupport());
+
+                    entry.getValue().writeTo(out);
+                }
+            }
+
+            // Atomic rename - a crash mid-write never leaves a truncated cache behind
+            Files.move(tempPath, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } catch (IOException e) {
+            EuphoriaCompanion.LOGGER.warn("Failed to save parse cache to {}", file, e);
+        }
+    }
+
+    /**
+     * Version of this mod, which decides how files are parsed
+     */
+    private static String modVersion() {
+        return FabricLoader.getInstance().getModContainer(MOD_ID)
+            .map(mod -> mod.getMetadata().getVersion().getFriendlyString())
+            .orElse("unknown");
+    }
+
+    /**
+     * Fast 64-bit hash of the buffer contents, processing 8 bytes per step
+     */
+    static long hash(ByteBuffer content) {
+        ByteBuffer buffer = content.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        long hash = 0x9E3779B97F4A7C15L ^ buffer.remaining();
+
+        while (buffer.remaining() >= Long.BYTES) {
+            hash = Long.rotateLeft(hash ^ mix(buffer.getLong()), 27) * 0x9E3779B97F4A7C15L + 0x632BE59BD9B4E019L;
+        }
+
+        long tail = 0;
+        for (int shift = 0; buffer.hasRemaining(); shift += 8) {
+            tail |= (buffer.get() & 0xFFL) << shift;
+        }
+        return mix(hash ^ mix(tail));
+    }
+
+    // MurmurHash3 finalizer
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
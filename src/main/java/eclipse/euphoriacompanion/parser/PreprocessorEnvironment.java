@@ -0,0 +1,154 @@
+package eclipse.euphoriacompanion.parser;
+
+import eclipse.euphoriacompanion.EuphoriaCompanion;
+import eclipse.euphoriacompanion.config.ModConfig;
+import eclipse.euphoriacompanion.util.MinecraftVersionUtil;
+import net.fabricmc.loader.api.FabricLoader;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Values of the preprocessor variables and defines that block.properties conditionals are evaluated against.
+ *
+ * @param mcVersion      MC_VERSION (e.g. 12001 for 1.20.1)
+ * @param irisLoaded     EUPHORIA_PATCHES_IRIS is defined
+ * @param oculusLoaded   EUPHORIA_PATCHES_OCULUS is defined
+ * @param oculusVersion  EUPHORIA_PATCHES_OCULUS_VERSION (major*10000 + minor*100 + patch)
+ * @param irisTagSupport IRIS_TAG_SUPPORT (0 = disabled, 2 = enabled for Iris 1.8+)
+ */
+public record PreprocessorEnvironment(int mcVersion, boolean irisLoaded, boolean oculusLoaded,
+                                      int oculusVersion, int irisTagSupport) {
+
+    /**
+     * Detects the environment of the running game (loaded shader loader, tag support, Minecraft version)
+     */
+    public static PreprocessorEnvironment detect(ModConfig config, int currentMCVersion) {
+        boolean euphoriaPatchesEnabled = config.detectEuphoriaPatchesSupport();
+
+        // IRIS_TAG_SUPPORT variable (0 = disabled, 2 = enabled for Iris 1.8+)
+        int irisTagSupport = config.isTagSupportEnabled() ? 2 : 0;
+
+        // Euphoria Companion defines (only available with Euphoria Patches 1.7.8+)
+        boolean irisLoaded = false;
+        boolean oculusLoaded = false;
+        int oculusVersion = 0;
+        if (euphoriaPatchesEnabled) {
+            oculusLoaded = FabricLoader.getInstance().isModLoaded("oculus");
+            if (!oculusLoaded) {
+                irisLoaded = FabricLoader.getInstance().isModLoaded("iris");
+            }
+            oculusVersion = getOculusVersionInt();
+            EuphoriaCompanion.LOGGER.info("Euphoria Companion defines: EUPHORIA_PATCHES_IRIS={}, EUPHORIA_PATCHES_OCULUS={}, EUPHORIA_PATCHES_OCULUS_VERSION={}",
+                irisLoaded, oculusLoaded, oculusVersion);
+        } else {
+            EuphoriaCompanion.LOGGER.info("Euphoria Patches not detected, Euphoria Companion defines disabled");
+        }
+
+        EuphoriaCompanion.LOGGER.info("IRIS_TAG_SUPPORT = {}", irisTagSupport);
+        return new PreprocessorEnvironment(currentMCVersion, irisLoaded, oculusLoaded, oculusVersion, irisTagSupport);
+    }
+
+    /**
+     * Parses the comma separated target environments of {@link ModConfig#targetEnvironments}, keyed by each entry as
+     * written. An entry is a Minecraft version, optionally followed by /iris or /oculus (Euphoria Patches defines
+     * set) and for Oculus its version, e.g. "1.20.1/iris" or "1.19.2/oculus/1.7.0". IRIS_TAG_SUPPORT is taken
+     * from the current environment. Invalid entries are skipped with a warning.
+     */
+    public static Map<String, PreprocessorEnvironment> parseTargets(String targets, PreprocessorEnvironment current) {
+        Map<String, PreprocessorEnvironment> environments = new LinkedHashMap<>();
+        for (String target : targets.split(",")) {
+            target = target.trim();
+            if (target.isEmpty()) {
+                continue;
+            }
+            if (environments.size() == Long.SIZE) {
+                EuphoriaCompanion.LOGGER.warn("More than {} target environments, ignoring {} and later ones", Long.SIZE, target);
+                break;
+            }
+
+            String[] parts = target.split("/");
+            String loader = parts.length > 1 ? parts[1].toLowerCase(Locale.ROOT) : "";
+            boolean iris = loader.equals("iris");
+            boolean oculus = loader.equals("oculus");
+            boolean valid = switch (parts.length) {
+                case 1 -> true;
+                case 2 -> iris || oculus;
+                case 3 -> oculus;
+                default -> false;
+            };
+            if (!valid) {
+                EuphoriaCompanion.LOGGER.warn("Invalid target environment, ignoring it: {}", target);
+                continue;
+            }
+
+            try {
+                int mcVersion = MinecraftVersionUtil.parseVersionToInt(parts[0]);
+                int oculusVersion = parts.length == 3 ? MinecraftVersionUtil.parseVersionToInt(parts[2]) : 0;
+                environments.put(target, new PreprocessorEnvironment(mcVersion, iris, oculus, oculusVersion, current.irisTagSupport()));
+            } catch (RuntimeException e) {
+                EuphoriaCompanion.LOGGER.warn("Invalid target environment, ignoring it: {}", target);
+            }
+        }
+        return environments;
+    }
+
+    /**
+     * Gets Oculus version as integer (for EUPHORIA_PATCHES_OCULUS_VERSION define)
+     * Returns version in format: major*10000 + minor*100 + patch
+     * e.g., 1.7.0 -> 10700
+     */
+    private static int getOculusVersionInt() {
+        return FabricLoader.getInstance().getModContainer("oculus")
+            .map(modContainer -> {
+                String version = modContainer.getMetadata().getVersion().getFriendlyString();
+
+                // Parse version string (e.g., "1.7.0", "1.7.0+mc1.21")
+                try {
+                    String[] parts = version.split("[.+]");
+                    if (parts.length >= 3) {
+                        int major = Integer.parseInt(parts[0]);
+                        int minor = Integer.parseInt(parts[1]);
+                        int patch = Integer.parseInt(parts[2]);
+
+                        return major * 10000 + minor * 100 + patch;
+                    }
+                } catch (NumberFormatException e) {
+                    EuphoriaCompanion.LOGGER.warn("Failed to parse Oculus version: {}", version);
+                }
+
+                return 0;
+            })
+            .orElse(0);
+    }
+
+    /**
+     * Integer variables usable in #if comparisons
+     */
+    enum Variable {
+        MC_VERSION, EUPHORIA_PATCHES_OCULUS_VERSION, IRIS_TAG_SUPPORT
+    }
+
+    /**
+     * Symbols usable in #ifdef/#ifndef and defined(...)
+     */
+    enum Symbol {
+        EUPHORIA_PATCHES_IRIS, EUPHORIA_PATCHES_OCULUS
+    }
+
+    int valueOf(Variable variable) {
+        return switch (variable) {
+            case MC_VERSION -> mcVersion;
+            case EUPHORIA_PATCHES_OCULUS_VERSION -> oculusVersion;
+            case IRIS_TAG_SUPPORT -> irisTagSupport;
+        };
+    }
+
+    boolean isDefined(Symbol symbol) {
+        return switch (symbol) {
+            case EUPHORIA_PATCHES_IRIS -> irisLoaded;
+            case EUPHORIA_PATCHES_OCULUS -> oculusLoaded;
+        };
+    }
+}
@@ -0,0 +1,40 @@
+package eclipse.euphoriacompanion.parser;
+
+/**
+ * Members of the shaders/*.properties family that map registry IDs to shader IDs. They share the preprocessor
+ * and differ only in the key of their assignments (block.XX=..., item.XX=..., entity.XX=...).
+ */
+public enum PropertiesFile {
+    BLOCK("block"),
+    ITEM("item"),
+    ENTITY("entity");
+
+    private final String name;
+    private final byte[] keyPrefix;
+
+    PropertiesFile(String name) {
+        this.name = name;
+        this.keyPrefix = BlockPropertiesTokenizer.ascii(name + ".");
+    }
+
+    /**
+     * Name of the file inside the shaders directory (e.g. "item.properties")
+     */
+    public String fileName() {
+        return name + ".properties";
+    }
+
+    /**
+     * Singular noun for log messages (e.g. "item")
+     */
+    public String noun() {
+        return name;
+    }
+
+    /**
+     * Prefix of assignment keys (e.g. "item.")
+     */
+    byte[] keyPrefix() {
+        return keyPrefix;
+    }
+}
@@ -0,0 +1,197 @@
+package eclipse.euphoriacompanion.parser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Run-scoped table that maps block IDs, with or without their blockstate suffix, to dense ints.
+ * Parser and analyzer key their maps and sets on these symbols instead of hashing and comparing
+ * long strings such as "minecraft:furnace:lit=true" over and over. Interning a token straight from
+ * the tokenizer buffer does not allocate once the symbol is known.
+ * Concurrent analysis phases look symbols up in a {@link Snapshot}, which takes no lock.
+ */
+public final class SymbolTable {
+    public static final int NONE = -1;
+
+    private String[] names = new String[1024];
+    private byte[][] texts = new byte[1024][];  // UTF-8 bytes of each name
+    private int[] hashes = new int[1024];
+    private int[] slots = new int[2048];        // Open addressing, symbol + 1 (0 = empty)
+    private int size;
+    private Snapshot snapshot;  // Last snapshot handed out, reused while no symbol was added
+
+    /**
+     * Returns the symbol for a name, adding it if needed
+     */
+    public synchronized int intern(String name) {
+        byte[] text = name.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(text);
+        int slot = findSlot(text, hash);
+        return slots[slot] != 0 ? slots[slot] - 1 : add(slot, name, text, hash);
+    }
+
+    /**
+     * Returns the symbol for an optional ASCII prefix followed by a tokenizer region, adding it if needed
+     */
+    synchronized int intern(BlockPropertiesTokenizer tokens, byte[] prefix, int start, int end) {
+        int hash = tokens.regionHash(prefix, start, end);
+        for (int slot = spread(hash) & (slots.length - 1); slots[slot] != 0; slot = (slot + 1) & (slots.length - 1)) {
+            int symbol = slots[slot] - 1;
+            if (hashes[symbol] == hash && tokens.regionEquals(prefix, start, end, texts[symbol])) {
+                return symbol;
+            }
+        }
+
+        // Miss: decode and go through the string path, which also handles malformed UTF-8 consistently
+        return intern(tokens.string(prefix, start, end));
+    }
+
+    /**
+     * Interns every symbol of another table, returning the translation from its symbols to this table's
+     */
+    synchronized int[] internAll(SymbolTable other) {
+        synchronized (other) {
+            int[] translation = new int[other.size];
+            for (int symbol = 0; symbol < other.size; symbol++) {
+                byte[] text = other.texts[symbol];
+                int hash = other.hashes[symbol];
+                int slot = findSlot(text, hash);
+                translation[symbol] = slots[slot] != 0 ? slots[slot] - 1 : add(slot, other.names[symbol], text, hash);
+            }
+            return translation;
+        }
+    }
+
+    /**
+     * Returns an immutable view of the symbols interned so far
+     */
+    public synchronized Snapshot snapshot() {
+        if (snapshot == null || snapshot.size != size) {
+            // Entries below size never change and grown arrays are copies, only the slots are updated in place
+            snapshot = new Snapshot(names, texts, hashes, slots.clone(), size);
+        }
+        return snapshot;
+    }
+
+    public synchronized String name(int symbol) {
+        return names[symbol];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private int findSlot(byte[] text, int hash) {
+        int slot = spread(hash) & (slots.length - 1);
+        while (slots[slot] != 0) {
+            int symbol = slots[slot] - 1;
+            if (hashes[symbol] == hash && Arrays.equals(texts[symbol], text)) {
+                break;
+            }
+            slot = (slot + 1) & (slots.length - 1);
+        }
+        return slot;
+    }
+
+    private int add(int slot, String name, byte[] text, int hash) {
+        int symbol = size++;
+        if (symbol == names.length) {
+            names = Arrays.copyOf(names, symbol * 2);
+            texts = Arrays.copyOf(texts, symbol * 2);
+            hashes = Arrays.copyOf(hashes, symbol * 2);
+        }
+        names[symbol] = name;
+        texts[symbol] = text;
+        hashes[symbol] = hash;
+        slots[slot] = symbol + 1;
+
+        // Keep the load factor at or below 1/2
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        return symbol;
+    }
+
+    private void rehash(int capacity) {
+        int[] rehashed = new int[capacity];
+        for (int symbol = 0; symbol < size; symbol++) {
+            int slot = spread(hashes[symbol]) & (capacity - 1);
+            while (rehashed[slot] != 0) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            rehashed[slot] = symbol + 1;
+        }
+        slots = rehashed;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);  // String-style hashes of similar IDs differ mostly in the high bits
+    }
+
+    private static int hash(byte[] text) {
+        int hash = 0;
+        for (byte b : text) {
+            hash = 31 * hash + (b & 0xFF);
+        }
+        return hash;
+    }
+
+    /**
+     * Symbols of a table at the time the snapshot was taken. Lookups take no lock, so the analysis phases of a pack
+     * share one snapshot taken after its parse; symbols interned later (e.g. by other packs) are not in it.
+     */
+    public static final class Snapshot {
+        private final String[] names;
+        private final byte[][] texts;
+        private final int[] hashes;
+        private final int[] slots;
+        private final int size;
+
+        private Snapshot(String[] names, byte[][] texts, int[] hashes, int[] slots, int size) {
+            this.names = names;
+            this.texts = texts;
+            this.hashes = hashes;
+            this.slots = slots;
+            this.size = size;
+        }
+
+        /**
+         * Returns the symbol for a name, or {@link #NONE} if it was not interned when the snapshot was taken
+         */
+        public int find(String name) {
+            // ASCII names (all valid identifiers) hash the same as their UTF-8 bytes, so only others are encoded
+            int hash = 0;
+            for (int i = 0; i < name.length(); i++) {
+                char c = name.charAt(i);
+                if (c >= 0x80) {
+                    return find(name.getBytes(StandardCharsets.UTF_8));
+                }
+                hash = 31 * hash + c;
+            }
+
+            for (int slot = spread(hash) & (slots.length - 1); slots[slot] != 0; slot = (slot + 1) & (slots.length - 1)) {
+                int symbol = slots[slot] - 1;
+                if (hashes[symbol] == hash && names[symbol].equals(name)) {
+                    return symbol;
+                }
+            }
+            return NONE;
+        }
+
+        private int find(byte[] text) {
+            int hash = hash(text);
+            for (int slot = spread(hash) & (slots.length - 1); slots[slot] != 0; slot = (slot + 1) & (slots.length - 1)) {
+                int symbol = slots[slot] - 1;
+                if (hashes[symbol] == hash && Arrays.equals(texts[symbol], text)) {
+                    return symbol;
+                }
+            }
+            return NONE;
+        }
+
+        public String name(int symbol) {
+            return names[Objects.checkIndex(symbol, size)];
+        }
+    }
+}
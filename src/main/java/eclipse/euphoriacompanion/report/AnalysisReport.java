@@ -1,21 +1,30 @@
 package eclipse.euphoriacompanion.report;
 
+import eclipse.euphoriacompanion.analyzer.MissingBlocks;
+import eclipse.euphoriacompanion.analyzer.ShaderAnalyzer.AssignmentDifference;
 import eclipse.euphoriacompanion.analyzer.ShaderAnalyzer.RenderLayerMismatch;
+import eclipse.euphoriacompanion.parser.DuplicateAssignments;
 
 import java.util.*;
 
 /**
  * Contains the results of a shader analysis.
+ * Missing blocks are kept as {@link MissingBlocks} columns; the map getters build string views from them.
  */
 public class AnalysisReport {
     private final String shaderpackName;
-    private Map<String, Map<String, List<String>>> missingBlocksByMod = new HashMap<>();
+    private MissingBlocks missingBlocks = null;  // null if the pack was not analyzed
+    private Map<String, MissingBlocks> missingBlocksByDimension = new TreeMap<>();
+    private Map<String, Map<String, List<String>>> missingItemsByMod = null;     // null if the pack has no item.properties
+    private Map<String, Map<String, List<String>>> missingEntitiesByMod = null;  // null if the pack has no entity.properties
     private Map<String, Set<String>> tagCoverage = new HashMap<>();
     private Map<String, String> tagDefinitions = new HashMap<>();
     private Map<String, Integer> tagToProperty = new HashMap<>();
     private Map<String, RenderLayerMismatch> renderLayerMismatches = new HashMap<>();
     private Map<String, Map<String, List<String>>> incompleteBlockStates = new HashMap<>();
     private Map<String, List<Integer>> duplicateDefinitions = new HashMap<>();
+    private Map<String, DuplicateAssignments> duplicateAssignments = new HashMap<>();
+    private Map<String, Map<String, AssignmentDifference>> targetDifferences = new LinkedHashMap<>();  // Empty if no targets are configured
 
     // Statistics
     private int totalBlocksInGame = 0;
@@ -31,12 +40,55 @@ public class AnalysisReport {
         return shaderpackName;
     }
 
+    public MissingBlocks getMissingBlocks() {
+        return missingBlocks;
+    }
+
+    public void setMissingBlocks(MissingBlocks missingBlocks) {
+        this.missingBlocks = missingBlocks;
+    }
+
+    /**
+     * Missing blocks as mod -> category -> block IDs, built from the columns on every call
+     */
     public Map<String, Map<String, List<String>>> getMissingBlocksByMod() {
-        return missingBlocksByMod;
+        return missingBlocks == null ? new TreeMap<>() : missingBlocks.toMap();
+    }
+
+    /**
+     * Missing blocks of each per-dimension block.properties override, keyed by world folder (e.g. "world-1")
+     */
+    public Map<String, MissingBlocks> getMissingBlockColumnsByDimension() {
+        return missingBlocksByDimension;
+    }
+
+    public void setMissingBlocksByDimension(Map<String, MissingBlocks> missingBlocksByDimension) {
+        this.missingBlocksByDimension = missingBlocksByDimension;
+    }
+
+    /**
+     * Missing blocks of each per-dimension override as mod -> category -> block IDs, built on every call
+     */
+    public Map<String, Map<String, Map<String, List<String>>>> getMissingBlocksByDimension() {
+        Map<String, Map<String, Map<String, List<String>>>> view = new TreeMap<>();
+        missingBlocksByDimension.forEach((world, missing) -> view.put(world, missing.toMap()));
+        return view;
     }
 
-    public void setMissingBlocksByMod(Map<String, Map<String, List<String>>> missingBlocksByMod) {
-        this.missingBlocksByMod = missingBlocksByMod;
+    public Map<String, Map<String, List<String>>> getMissingItemsByMod() {
+        return missingItemsByMod;
+    }
+
+    public void setMissingItemsByMod(Map<String, Map<String, List<String>>> missingItemsByMod) {
+        this.missingItemsByMod = missingItemsByMod;
+    }
+
+    public Map<String, Map<String, List<String>>> getMissingEntitiesByMod() {
+        return missingEntitiesByMod;
+    }
+
+    public void setMissingEntitiesByMod(Map<String, Map<String, List<String>>> missingEntitiesByMod) {
+        this.missingEntitiesByMod = missingEntitiesByMod;
     }
 
     public Map<String, Set<String>> getTagCoverage() {
@@ -87,6 +139,25 @@ public class AnalysisReport {
         this.duplicateDefinitions = duplicateDefinitions;
     }
 
+    public Map<String, DuplicateAssignments> getDuplicateAssignments() {
+        return duplicateAssignments;
+    }
+
+    public void setDuplicateAssignments(Map<String, DuplicateAssignments> duplicateAssignments) {
+        this.duplicateAssignments = duplicateAssignments;
+    }
+
+    /**
+     * Assignments that differ from the current environment, keyed by target environment and then block ID
+     */
+    public Map<String, Map<String, AssignmentDifference>> getTargetDifferences() {
+        return targetDifferences;
+    }
+
+    public void setTargetDifferences(Map<String, Map<String, AssignmentDifference>> targetDifferences) {
+        this.targetDifferences = targetDifferences;
+    }
+
     public int getTotalBlocksInGame() {
         return totalBlocksInGame;
     }
@@ -115,11 +186,7 @@ public class AnalysisReport {
      * Gets the total count of missing blocks across all mods
      */
     public int getTotalMissingBlocks() {
-        return missingBlocksByMod.values().stream()
-            .mapToInt(categories -> categories.values().stream()
-                .mapToInt(List::size)
-                .sum())
-            .sum();
+        return missingBlocks == null ? 0 : missingBlocks.size();
     }
 
 }
\ No newline at end of file
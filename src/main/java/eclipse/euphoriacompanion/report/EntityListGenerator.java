@@ -1,9 +1,7 @@
 package eclipse.euphoriacompanion.report;
 
 import eclipse.euphoriacompanion.EuphoriaCompanion;
-import net.minecraft.entity.EntityType;
-import net.minecraft.registry.Registries;
-import net.minecraft.util.Identifier;
+import eclipse.euphoriacompanion.analyzer.RegistryEntrySnapshot;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
@@ -18,9 +16,9 @@ import java.util.*;
 public class EntityListGenerator {
 
     /**
-     * Generates and saves an entity list to the specified path
+     * Generates and saves an entity list to the specified path from the run's copy of the entity type registry
      */
-    public static void generateEntityList(Path outputPath) throws IOException {
+    public static void generateEntityList(RegistryEntrySnapshot entityTypes, Path outputPath) throws IOException {
         EuphoriaCompanion.LOGGER.info("Starting entity list generation...");
 
         if (outputPath.getParent() == null) {
@@ -32,11 +30,9 @@ public class EntityListGenerator {
         // Group entities by namespace (mod)
         Map<String, List<String>> entitiesByMod = new TreeMap<>();
 
-        for (EntityType<?> entityType : Registries.ENTITY_TYPE) {
-            Identifier id = Registries.ENTITY_TYPE.getId(entityType);
-
-            String namespace = id.getNamespace();
-            String entityName = id.toString();
+        for (int i = 0; i < entityTypes.size(); i++) {
+            String namespace = entityTypes.namespace(i);
+            String entityName = entityTypes.id(i);
 
             entitiesByMod.computeIfAbsent(namespace, k -> new ArrayList<>())
                     .add(entityName);
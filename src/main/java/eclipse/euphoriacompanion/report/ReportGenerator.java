@@ -1,6 +1,10 @@
 package eclipse.euphoriacompanion.report;
 
+import eclipse.euphoriacompanion.analyzer.MissingBlocks;
+import eclipse.euphoriacompanion.analyzer.ShaderAnalyzer.AssignmentDifference;
 import eclipse.euphoriacompanion.analyzer.ShaderAnalyzer.RenderLayerMismatch;
+import eclipse.euphoriacompanion.parser.DuplicateAssignments;
+import it.unimi.dsi.fastutil.ints.IntIterator;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
@@ -34,11 +38,15 @@ public class ReportGenerator {
         try (BufferedWriter writer = Files.newBufferedWriter(tempPath)) {
             writeHeader(writer, report);
             writeMissingBlocks(writer, report);
+            writeMissingBlocksByDimension(writer, report);
+            writeMissingItems(writer, report);
+            writeMissingEntities(writer, report);
             writeTagCoverage(writer, report);
             writeUnusedTags(writer, report);
             writeIncompleteBlockStates(writer, report);
             writeDuplicateDefinitions(writer, report);
             writeRenderLayerMismatches(writer, report);
+            writeTargetDifferences(writer, report);
         }
 
         // Atomic rename - only appears as complete file
@@ -71,13 +79,75 @@ public class ReportGenerator {
      * Writes the missing blocks section
      */
     private static void writeMissingBlocks(BufferedWriter writer, AnalysisReport report) throws IOException {
+        writeMissingBlocks(writer, "MISSING BLOCKS BY MOD", report.getMissingBlocks());
+    }
+
+    /**
+     * Writes one missing blocks section for each per-dimension block.properties override
+     */
+    private static void writeMissingBlocksByDimension(BufferedWriter writer, AnalysisReport report) throws IOException {
+        for (Map.Entry<String, MissingBlocks> entry : report.getMissingBlockColumnsByDimension().entrySet()) {
+            writeMissingBlocks(writer, "MISSING BLOCKS BY MOD IN " + entry.getKey() + "/block.properties", entry.getValue());
+        }
+    }
+
+    /**
+     * Writes a section of missing blocks straight from the columns, resolving each block ID as it is written
+     * (same layout as {@link #writeMissingByMod})
+     */
+    private static void writeMissingBlocks(BufferedWriter writer, String title, MissingBlocks missingBlocks) throws IOException {
         writer.write("----------------------------------------\n");
-        writer.write("MISSING BLOCKS BY MOD:\n\n");
+        writer.write(title + ":\n\n");
 
-        Map<String, Map<String, List<String>>> missingByMod = report.getMissingBlocksByMod();
+        if (missingBlocks == null || missingBlocks.size() == 0) {
+            writer.write("No missing blocks found.\n\n");
+            return;
+        }
+
+        for (int group = 0; group < missingBlocks.groupCount(); group++) {
+            // First group of a mod starts its heading
+            if (group == 0 || !missingBlocks.groupNamespace(group).equals(missingBlocks.groupNamespace(group - 1))) {
+                writer.write(missingBlocks.groupNamespace(group) + " (" + missingBlocks.namespaceSize(group) + " blocks):\n");
+            }
+
+            // Entries are already sorted alphabetically within a group, streamed ones come in registry order
+            writer.write("  " + missingBlocks.groupCategory(group).displayName() + " (" + missingBlocks.groupSize(group) + "):\n");
+            for (IntIterator rawIds = missingBlocks.rawIds(group); rawIds.hasNext(); ) {
+                writer.write(" " + missingBlocks.id(rawIds.nextInt()) + "\n");
+            }
+
+            writer.write("\n");
+        }
+    }
+
+    /**
+     * Writes the missing items section (only for packs with an item.properties)
+     */
+    private static void writeMissingItems(BufferedWriter writer, AnalysisReport report) throws IOException {
+        if (report.getMissingItemsByMod() != null) {
+            writeMissingByMod(writer, "MISSING ITEMS BY MOD", report.getMissingItemsByMod(), "items");
+        }
+    }
+
+    /**
+     * Writes the missing entities section (only for packs with an entity.properties)
+     */
+    private static void writeMissingEntities(BufferedWriter writer, AnalysisReport report) throws IOException {
+        if (report.getMissingEntitiesByMod() != null) {
+            writeMissingByMod(writer, "MISSING ENTITIES BY MOD", report.getMissingEntitiesByMod(), "entities");
+        }
+    }
+
+    /**
+     * Writes a section of missing registry entries grouped by mod and category
+     */
+    private static void writeMissingByMod(BufferedWriter writer, String title,
+                                          Map<String, Map<String, List<String>>> missingByMod, String unit) throws IOException {
+        writer.write("----------------------------------------\n");
+        writer.write(title + ":\n\n");
 
         if (missingByMod.isEmpty()) {
-            writer.write("No missing blocks found.\n\n");
+            writer.write("No missing " + unit + " found.\n\n");
             return;
         }
 
@@ -85,26 +155,26 @@ public class ReportGenerator {
             String modName = modEntry.getKey();
             Map<String, List<String>> categories = modEntry.getValue();
 
-            // Count total blocks for this mod
-            int totalBlocks = categories.values().stream()
+            // Count total entries for this mod
+            int total = categories.values().stream()
                 .mapToInt(List::size)
                 .sum();
 
-            writer.write(modName + " (" + totalBlocks + " blocks):\n");
+            writer.write(modName + " (" + total + " " + unit + "):\n");
 
             // Write each category
             for (Map.Entry<String, List<String>> categoryEntry : categories.entrySet()) {
                 String category = categoryEntry.getKey();
-                List<String> blocks = categoryEntry.getValue();
+                List<String> entries = categoryEntry.getValue();
 
-                writer.write("  " + category + " (" + blocks.size() + "):\n");
+                writer.write("  " + category + " (" + entries.size() + "):\n");
 
-                // Sort blocks alphabetically
-                Collections.sort(blocks);
+                // Sort entries alphabetically
+                Collections.sort(entries);
 
-                // Write blocks (newline-separated only, no decorative characters)
-                for (String block : blocks) {
-                    writer.write(" " + block + "\n");
+                // Write entries (newline-separated only, no decorative characters)
+                for (String entry : entries) {
+                    writer.write(" " + entry + "\n");
                 }
 
                 writer.write("\n");
@@ -233,6 +303,7 @@ public class ReportGenerator {
     private static void writeDuplicateDefinitions(BufferedWriter writer, AnalysisReport report)
             throws IOException {
         Map<String, List<Integer>> duplicates = report.getDuplicateDefinitions();
+        Map<String, DuplicateAssignments> assignments = report.getDuplicateAssignments();
 
         writer.write("----------------------------------------\n");
         writer.write("DUPLICATE DEFINITIONS:\n\n");
@@ -258,7 +329,21 @@ public class ReportGenerator {
                 .orElse("");
 
             writer.write(blockState + " is defined multiple times:\n");
-            writer.write("  Properties: " + propertyIdsStr + "\n\n");
+            writer.write("  Properties: " + propertyIdsStr + "\n");
+
+            // Source lines of each assignment, in file order
+            DuplicateAssignments lines = assignments.get(blockState);
+            if (lines != null) {
+                StringBuilder linesStr = new StringBuilder();
+                for (int i = 0; i < lines.size(); i++) {
+                    if (i > 0) {
+                        linesStr.append(", ");
+                    }
+                    linesStr.append(lines.line(i)).append(" (block.").append(lines.propertyId(i)).append(')');
+                }
+                writer.write("  Lines: " + linesStr + "\n");
+            }
+            writer.write("\n");
         }
     }
 
@@ -295,4 +380,38 @@ public class ReportGenerator {
             writer.write("Expected: " + mismatch.expected() + " | Actual: " + mismatch.actual() + "\n\n");
         }
     }
+
+    /**
+     * Writes the assignments that differ under each configured target environment (nothing if none are configured)
+     */
+    private static void writeTargetDifferences(BufferedWriter writer, AnalysisReport report) throws IOException {
+        Map<String, Map<String, AssignmentDifference>> targets = report.getTargetDifferences();
+        if (targets.isEmpty()) {
+            return;
+        }
+
+        writer.write("----------------------------------------\n");
+        writer.write("TARGET ENVIRONMENTS (" + targets.size() + "):\n\n");
+        writer.write("Block assignments that differ from the current environment.\n\n");
+
+        for (Map.Entry<String, Map<String, AssignmentDifference>> target : targets.entrySet()) {
+            Map<String, AssignmentDifference> differences = target.getValue();
+            writer.write(target.getKey() + " (" + differences.size() + "):\n");
+            if (differences.isEmpty()) {
+                writer.write("  Same as the current environment.\n");
+            }
+
+            // Sorted by block ID
+            for (Map.Entry<String, AssignmentDifference> entry : differences.entrySet()) {
+                AssignmentDifference difference = entry.getValue();
+                writer.write("  " + entry.getKey() + ": " + propertyName(difference.current()) + " -> "
+                    + propertyName(difference.target()) + "\n");
+            }
+            writer.write("\n");
+        }
+    }
+
+    private static String propertyName(Integer propertyId) {
+        return propertyId == null ? "not assigned" : "block." + propertyId;
+    }
 }
\ No newline at end of file